@@ -7,14 +7,15 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Properties;
 
+import javax.smartcardio.CardException;
 import javax.smartcardio.CardTerminal;
 import javax.smartcardio.TerminalFactory;
 import net.devbase.jfreesteel.Reader;
-import net.devbase.jfreesteel.Reader.ReaderListener;
+import net.devbase.jfreesteel.Reader.ReaderSnapshotListener;
 import net.devbase.jfreesteel.EidCard;
-import net.devbase.jfreesteel.EidInfo;
+import net.devbase.jfreesteel.EidJsonWriter;
+import net.devbase.jfreesteel.EidSnapshot;
 
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.ByteArrayOutputStream;
@@ -27,7 +28,7 @@ import org.slf4j.LoggerFactory;
 import netscape.javascript.JSObject;
 import org.json.simple.JSONObject;
 
-public class EidApplet extends Applet implements ReaderListener {
+public class EidApplet extends Applet implements ReaderSnapshotListener {
 
     private static final long serialVersionUID = -8975515949350240407L;
     private final static Logger logger = LoggerFactory.getLogger(EidApplet.class);
@@ -51,7 +52,7 @@ public class EidApplet extends Applet implements ReaderListener {
 
         // build a reader
         Reader reader = new Reader(terminal);
-        reader.addCardListener(this);
+        reader.addSnapshotListener(this);
         logger.info("Terminal initialized.");
 
         // get callbacks
@@ -74,24 +75,29 @@ public class EidApplet extends Applet implements ReaderListener {
         logger.info("Applet started");
     }
 
-    public void inserted(EidCard card) {
+    public void inserted(EidCard card, EidSnapshot snapshot) {
         this.card = card;
 
         showStatus("Card inserted.");
         try {
-            EidInfo info = card.readEidInfo();
-            String infoJson = info.toJSON().toString();
+            StringBuilder infoJson = new StringBuilder();
+            EidJsonWriter.write(snapshot.getInfo(), infoJson);
 
-            Image image = card.readEidPhoto();
-            String photo = Utils.image2Base64String(image);
+            String photo = Utils.bytes2Base64String(snapshot.getPhotoBytes());
 
-            window.call(insertedCallback, new Object[] {infoJson, photo});
+            window.call(insertedCallback, new Object[] {infoJson.toString(), photo});
         } catch (Exception e) {
             logger.error("Read info exception", e);
             stop();
         }
     }
 
+    public void readFailed(EidCard card, CardException error) {
+        this.card = card;
+        logger.error("Read info exception", error);
+        stop();
+    }
+
     public void removed() {
         showStatus("Card removed.");
         window.call(removedCallback, null);
@@ -1,7 +1,8 @@
 package net.devbase.jfreesteel.nativemessaging;
 
 import net.devbase.jfreesteel.EidCard;
-import net.devbase.jfreesteel.EidInfo;
+import net.devbase.jfreesteel.EidJsonWriter;
+import net.devbase.jfreesteel.EidSnapshot;
 import net.devbase.jfreesteel.Utils;
 
 import org.json.simple.JSONArray;
@@ -12,7 +13,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.smartcardio.*;
 import javax.smartcardio.CardTerminals.State;
-import java.awt.Image;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -46,6 +46,7 @@ public class EidWebExtensionApp {
     static private final int ERROR_NO_TERMINALS = 5;
     static private final int ERROR_CARD_EXCEPTION = 6;
     static private final int ERROR_CARD_UNKNOWN = 7;
+    static private final int ERROR_WRITING_MESSAGE = 8;
 
     private EidWebExtensionApp() {
         out = System.out;
@@ -252,20 +253,21 @@ public class EidWebExtensionApp {
         logger.info("Card inserted");
 
         try {
-            JSONObject obj = new JSONObject();
+            EidSnapshot snapshot = card.readAll();
 
-            EidInfo info = card.readEidInfo();
-            obj.put("info", info.toJSON());
+            StringBuilder msg = new StringBuilder();
+            new EidJsonWriter(msg)
+                .beginObject()
+                .name("info").value(snapshot.getInfo())
+                .name("photo").base64Value(snapshot.getPhotoBytes())
+                .name("terminal").value(terminalName)
+                .endObject();
 
-            Image image = card.readEidPhoto();
-            String photo = Utils.image2Base64String(image);
-            obj.put("photo", photo);
-
-            obj.put("terminal", terminalName);
-
-            sendMessage(obj.toString());
+            sendMessage(msg.toString());
         } catch (CardException e) {
             sendError("Error reading card info", ERROR_CARD_EXCEPTION, terminalName, e);
+        } catch (IOException e) {
+            sendError("Error writing card info", ERROR_WRITING_MESSAGE, terminalName, e);
         }
     }
 
@@ -51,8 +51,10 @@ import javax.imageio.ImageIO;
 
 import net.devbase.jfreesteel.EidCard;
 import net.devbase.jfreesteel.EidInfo;
+import net.devbase.jfreesteel.EidSnapshot;
+import net.devbase.jfreesteel.ListenerExecutors;
 import net.devbase.jfreesteel.Reader;
-import net.devbase.jfreesteel.Reader.ReaderListener;
+import net.devbase.jfreesteel.Reader.ReaderSnapshotListener;
 import net.devbase.jfreesteel.gui.GUIPanel;
 
 import org.slf4j.Logger;
@@ -66,7 +68,7 @@ import com.itextpdf.text.DocumentException;
  * @author Goran Rakic (grakic@devbase.net)
  */
 @SuppressWarnings("restriction")  // Access to restricted card APIs
-public class EidViewer extends JPanel implements ReaderListener {
+public class EidViewer extends JPanel implements ReaderSnapshotListener {
     
     private static final long serialVersionUID = -2497143822816312498L;
 
@@ -83,6 +85,7 @@ public class EidViewer extends JPanel implements ReaderListener {
 
     private EidInfo info;
     private Image photo;
+    private byte[] photoBytes;
     
     private JFrame frame;
     private GUIPanel details;
@@ -220,9 +223,9 @@ public class EidViewer extends JPanel implements ReaderListener {
         frame.getContentPane().add(app, BorderLayout.CENTER);
         frame.pack();
 
-        // Create reader and add GUI as the listener
-        Reader reader = new Reader(terminal);
-        reader.addCardListener(app);
+        // Create reader and add GUI as the listener, reading the card off the reader thread
+        Reader reader = new Reader(terminal, ListenerExecutors.newDefault());
+        reader.addSnapshotListener(app);
 
         // Display the window
         frame.setVisible(true);
@@ -256,15 +259,16 @@ public class EidViewer extends JPanel implements ReaderListener {
         logger.error("Card error", e);
     }
 
-    public void inserted(final EidCard card) {
+    public void inserted(final EidCard card, final EidSnapshot snapshot) {
         logger.info("Card inserted");
         CardLayout cl = (CardLayout) this.getLayout();
         cl.show(this, "details");        
 
         try {
-            info = card.readEidInfo();            
+            info = snapshot.getInfo();
             details.setDetails(info);
-            photo = card.readEidPhoto();            
+            photoBytes = snapshot.getPhotoBytes();
+            photo = snapshot.getPhoto();
             details.setPhoto(photo);
             button.setEnabled(true);
         } catch (CardException e) {
@@ -274,6 +278,11 @@ public class EidViewer extends JPanel implements ReaderListener {
         }
     }
 
+    public void readFailed(final EidCard card, final CardException error) {
+        logger.info("Card inserted, read failed");
+        showCardError(error);
+    }
+
     public void removed() {
         logger.info("Card removed");
 
@@ -283,6 +292,7 @@ public class EidViewer extends JPanel implements ReaderListener {
         button.setEnabled(false);
         info = null;
         photo = null;
+        photoBytes = null;
         details.clearDetailsAndPhoto();
     }
 
@@ -327,7 +337,7 @@ public class EidViewer extends JPanel implements ReaderListener {
 
                 try {
                     logger.info("Saving " + filename);
-                    PdfReport report = new PdfReport(info, photo);
+                    PdfReport report = new PdfReport(info, photoBytes);
                     report.write(filename);
                 } catch (IOException e) {
                     JOptionPane.showMessageDialog(frame,
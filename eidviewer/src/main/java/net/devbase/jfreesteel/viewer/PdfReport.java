@@ -4,6 +4,7 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import javax.imageio.ImageIO;
 
@@ -24,15 +25,32 @@ import com.itextpdf.text.pdf.PdfWriter;
  */
 public class PdfReport
 {
-    java.awt.Image photo;
+    byte[] photo;
     EidInfo info;
 
-    public PdfReport(EidInfo info, java.awt.Image photo)
+    /**
+     * @param info eID data
+     * @param photo Photo in JPEG format as read from the card, embedded into PDF as is
+     */
+    public PdfReport(EidInfo info, byte[] photo)
     {
         this.info = info;
         this.photo = photo;
     }
 
+    public PdfReport(EidInfo info, java.awt.Image photo) throws IOException
+    {
+        this(info, encodeJpeg(photo));
+    }
+
+    /** Write image to byte stream, as otherwise photo gets wash out */
+    private static byte[] encodeJpeg(java.awt.Image photo) throws IOException
+    {
+        ByteArrayOutputStream bas = new ByteArrayOutputStream();
+        ImageIO.write((BufferedImage) photo, "jpeg", bas);
+        return bas.toByteArray();
+    }
+
     /**
      * Creates a PDF with information about the movies
      * 
@@ -41,18 +59,27 @@ public class PdfReport
      * @throws IOException
      */
     public void write(final String filename) throws IOException, DocumentException
+    {
+        write(new FileOutputStream(filename));
+    }
+
+    /**
+     * Writes the PDF to the stream, the stream is closed when done.
+     *
+     * @param out the stream to write the PDF to
+     * @throws DocumentException
+     * @throws IOException
+     */
+    public void write(final OutputStream out) throws IOException, DocumentException
     {
 
         Document document = new Document();
         document.setPageSize(PageSize.A4);
-        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(filename));
+        PdfWriter writer = PdfWriter.getInstance(document, out);
         document.open();
 
-        // Write image: Read from byte stream, as otherwise photo gets wash out
-        ByteArrayOutputStream bas = new ByteArrayOutputStream();
-        ImageIO.write((BufferedImage) photo, "jpeg", bas);
-        byte[] data = bas.toByteArray();
-        Image image = Image.getInstance(data);
+        // Write image: embed the original JPEG bytes
+        Image image = Image.getInstance(photo);
         image.setAbsolutePosition(60, 572);
         image.setBorder(Image.BOX);
         image.setBorderWidth(1f);
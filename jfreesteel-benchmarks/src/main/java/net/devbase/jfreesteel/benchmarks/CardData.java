@@ -0,0 +1,72 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.benchmarks;
+
+import java.awt.Image;
+
+import net.devbase.jfreesteel.EidCard;
+import net.devbase.jfreesteel.EidInfo;
+import net.devbase.jfreesteel.EidSnapshot;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark input: the data read from a sample card, through the virtual terminal, so the
+ * files pass through the same Apollo or Gemalto reading code as with a real card.
+ */
+@State(Scope.Benchmark)
+public class CardData {
+
+    @Param({"APOLLO", "GEMALTO"})
+    public VirtualCardImage.Type type;
+
+    public byte[] atr;
+    public byte[] documentFile;
+    public byte[] personalFile;
+    public byte[] residenceFile;
+    public byte[] photoBytes;
+    public Image photo;
+    public EidInfo info;
+
+    @Setup
+    public void setUp() throws Exception {
+        VirtualTerminals terminals = new VirtualTerminals();
+        VirtualCardTerminal terminal = terminals.addTerminal("Benchmark");
+        VirtualCardImage image = VirtualCardImage.sample(type, 1);
+        terminal.insert(image);
+
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        EidSnapshot snapshot = card.readAll();
+        card.disconnect();
+
+        atr = image.getAtr();
+        documentFile = snapshot.getDocumentFile();
+        personalFile = snapshot.getPersonalFile();
+        residenceFile = snapshot.getResidenceFile();
+        photoBytes = snapshot.getPhotoBytes();
+        photo = snapshot.getPhoto();
+        info = snapshot.getInfo();
+    }
+}
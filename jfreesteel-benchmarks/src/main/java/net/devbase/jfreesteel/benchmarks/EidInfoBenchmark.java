@@ -0,0 +1,92 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.devbase.jfreesteel.EidInfo;
+import net.devbase.jfreesteel.EidInfo.Tag;
+import net.devbase.jfreesteel.EidJsonWriter;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting and serialization of EidInfo.
+ *
+ * Derived values are memoized, so the "fresh" benchmarks build a new EidInfo first to
+ * measure the first call as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EidInfoBenchmark {
+
+    private static EidInfo copy(EidInfo info) {
+        EidInfo.Builder builder = new EidInfo.Builder();
+        for (Tag tag : Tag.values()) {
+            String value = info.get(tag);
+            if (value != null) {
+                builder.addValue(tag, value);
+            }
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public JSONObject toJSON(CardData data) {
+        return data.info.toJSON();
+    }
+
+    @Benchmark
+    public String toJSONString(CardData data) {
+        return data.info.toJSON().toJSONString();
+    }
+
+    @Benchmark
+    public String jsonWriter(CardData data) throws IOException {
+        StringBuilder out = new StringBuilder(1024);
+        EidJsonWriter.write(data.info, out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String getPlaceFull(CardData data) {
+        return data.info.getPlaceFull("ulaz %s", "%s. sprat", "br. %s");
+    }
+
+    @Benchmark
+    public String getPlaceFull_fresh(CardData data) {
+        return copy(data.info).getPlaceFull("ulaz %s", "%s. sprat", "br. %s");
+    }
+
+    @Benchmark
+    public EidInfo copy_baseline(CardData data) {
+        return copy(data.info);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.smartcardio.CardException;
+
+import net.devbase.jfreesteel.EidCache;
+import net.devbase.jfreesteel.EidCard;
+import net.devbase.jfreesteel.benchmarks.RecordingCard.FileStats;
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+/**
+ * End-to-end read latency of readEidInfo() and readEidPhoto() with a virtual card.
+ *
+ * Each APDU exchange costs a fixed time plus a time per byte, modelled on the CCID readers:
+ * with the defaults, a short command costs about 4 ms and reading 255 bytes about 12 ms.
+ * Reports the APDU count, bytes transferred and time per file, averaged over the iterations.
+ *
+ * Usage:
+ * <pre>
+ * java -cp benchmarks.jar net.devbase.jfreesteel.benchmarks.ReadLatency \
+ *     [--apdu-ms 4] [--byte-us 30] [--iterations 5] [--short-apdus] [--cache]
+ * </pre>
+ *
+ * With --short-apdus the reader rejects extended length APDUs, with --cache the card is
+ * read through EidCache after the first read.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class ReadLatency {
+
+    private interface Operation {
+        void run(EidCard card) throws CardException;
+    }
+
+    private static final Map<String, Operation> OPERATIONS = new LinkedHashMap<String, Operation>();
+    static {
+        OPERATIONS.put("readEidInfo", new Operation() {
+            public void run(EidCard card) throws CardException {
+                card.readEidInfo();
+            }
+        });
+        OPERATIONS.put("readEidPhoto", new Operation() {
+            public void run(EidCard card) throws CardException {
+                card.readEidPhoto();
+            }
+        });
+        OPERATIONS.put("readAll", new Operation() {
+            public void run(EidCard card) throws CardException {
+                card.readAll();
+            }
+        });
+    }
+
+    private long apduMicros = 4000;
+    private long byteMicros = 30;
+    private int iterations = 5;
+    private boolean shortApdus = false;
+    private boolean cache = false;
+
+    public static void main(String[] args) throws Exception {
+        ReadLatency harness = new ReadLatency();
+        for (int i = 0; i < args.length; i++) {
+            if ("--apdu-ms".equals(args[i])) {
+                harness.apduMicros = (long) (Double.parseDouble(args[++i]) * 1000);
+            } else if ("--byte-us".equals(args[i])) {
+                harness.byteMicros = Long.parseLong(args[++i]);
+            } else if ("--iterations".equals(args[i])) {
+                harness.iterations = Integer.parseInt(args[++i]);
+            } else if ("--short-apdus".equals(args[i])) {
+                harness.shortApdus = true;
+            } else if ("--cache".equals(args[i])) {
+                harness.cache = true;
+            } else {
+                System.err.println("Usage: ReadLatency [--apdu-ms 4] [--byte-us 30] "
+                        + "[--iterations 5] [--short-apdus] [--cache]");
+                System.exit(1);
+            }
+        }
+
+        System.out.println(String.format(
+                "APDU cost %.1f ms + %d us/byte, %d iterations%s%s", harness.apduMicros / 1000.0,
+                harness.byteMicros, harness.iterations, harness.shortApdus ? ", short APDUs" : "",
+                harness.cache ? ", cached" : ""));
+        for (VirtualCardImage.Type type : VirtualCardImage.Type.values()) {
+            for (Map.Entry<String, Operation> operation : OPERATIONS.entrySet()) {
+                harness.run(type, operation.getKey(), operation.getValue());
+            }
+        }
+    }
+
+    private void run(VirtualCardImage.Type type, String name, Operation operation)
+            throws CardException {
+
+        VirtualTerminals terminals = new VirtualTerminals();
+        VirtualCardTerminal terminal = terminals.addTerminal("Latency");
+        terminal.insert(VirtualCardImage.sample(type, 1));
+        terminal.setLatency(apduMicros, byteMicros, TimeUnit.MICROSECONDS);
+        if (shortApdus) {
+            terminal.setFaultInjector(FaultInjector.shortApdusOnly());
+        }
+        EidCache eidCache = cache ? new EidCache(10) : null;
+
+        Map<String, FileStats> total = new LinkedHashMap<String, FileStats>();
+        long wallNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            // a new connection each time, as when the card is inserted again
+            RecordingCard recording = new RecordingCard(terminal.connect("*"));
+            long start = System.nanoTime();
+            EidCard card = EidCard.fromCard(recording);
+            card.setCache(eidCache);
+            if (cache && i == 0) {
+                // fill the cache, not measured
+                card.readAll();
+                recording.takeStats();
+                start = System.nanoTime();
+            }
+            operation.run(card);
+            wallNanos += System.nanoTime() - start;
+            card.disconnect();
+
+            for (Map.Entry<String, FileStats> entry : recording.takeStats().entrySet()) {
+                FileStats stats = total.get(entry.getKey());
+                if (stats == null) {
+                    total.put(entry.getKey(), stats = new FileStats());
+                }
+                stats.add(entry.getValue());
+            }
+        }
+
+        FileStats sum = new FileStats();
+        for (FileStats stats : total.values()) {
+            sum.add(stats);
+        }
+        System.out.println();
+        System.out.println(String.format("%s %s: %.1f ms wall, %.1f APDUs, %.0f bytes",
+                type, name, wallNanos / 1e6 / iterations, (double) sum.apdus / iterations,
+                (double) sum.bytes / iterations));
+        System.out.println(String.format("  %-6s %8s %8s %10s", "file", "apdus", "bytes", "ms"));
+        for (Map.Entry<String, FileStats> entry : total.entrySet()) {
+            FileStats stats = entry.getValue();
+            System.out.println(String.format("  %-6s %8.1f %8.0f %10.1f", entry.getKey(),
+                    (double) stats.apdus / iterations, (double) stats.bytes / iterations,
+                    stats.nanos / 1e6 / iterations));
+        }
+    }
+}
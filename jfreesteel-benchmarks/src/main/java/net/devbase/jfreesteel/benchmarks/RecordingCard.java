@@ -0,0 +1,170 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import net.devbase.jfreesteel.Utils;
+
+/**
+ * Card wrapper recording the APDU exchanges per elementary file.
+ *
+ * Every exchange is counted against the file selected last. SELECT commands start a new
+ * file, application selection is counted as "AID".
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+class RecordingCard extends Card {
+
+    /** APDU exchanges with one file */
+    static class FileStats {
+        long apdus;
+        long bytes;
+        long nanos;
+
+        void add(FileStats other) {
+            apdus += other.apdus;
+            bytes += other.bytes;
+            nanos += other.nanos;
+        }
+    }
+
+    private final Card card;
+    private final CardChannel channel;
+
+    private final Map<String, FileStats> files = new LinkedHashMap<String, FileStats>();
+    private FileStats current = null;
+
+    RecordingCard(Card card) {
+        this.card = card;
+        this.channel = new RecordingChannel(card.getBasicChannel());
+    }
+
+    /** Returns the exchanges per file in the order the files were first selected, and resets. */
+    synchronized Map<String, FileStats> takeStats() {
+        Map<String, FileStats> out = new LinkedHashMap<String, FileStats>(files);
+        files.clear();
+        current = null;
+        return out;
+    }
+
+    private synchronized void record(CommandAPDU command, ResponseAPDU response, long nanos) {
+        if (command.getINS() == 0xA4 || current == null) {
+            String name = command.getINS() != 0xA4 ? "-"
+                    : command.getP1() == 0x04 ? "AID" : Utils.bytes2HexStringCompact(command.getData());
+            current = files.get(name);
+            if (current == null) {
+                current = new FileStats();
+                files.put(name, current);
+            }
+        }
+        current.apdus++;
+        current.bytes += command.getBytes().length + response.getBytes().length;
+        current.nanos += nanos;
+    }
+
+    @Override
+    public ATR getATR() {
+        return card.getATR();
+    }
+
+    @Override
+    public String getProtocol() {
+        return card.getProtocol();
+    }
+
+    @Override
+    public CardChannel getBasicChannel() {
+        return channel;
+    }
+
+    @Override
+    public CardChannel openLogicalChannel() throws CardException {
+        throw new CardException("Logical channels are not supported");
+    }
+
+    @Override
+    public void beginExclusive() throws CardException {
+        card.beginExclusive();
+    }
+
+    @Override
+    public void endExclusive() throws CardException {
+        card.endExclusive();
+    }
+
+    @Override
+    public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+        return card.transmitControlCommand(controlCode, command);
+    }
+
+    @Override
+    public void disconnect(boolean reset) throws CardException {
+        card.disconnect(reset);
+    }
+
+    private class RecordingChannel extends CardChannel {
+
+        private final CardChannel channel;
+
+        RecordingChannel(CardChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Card getCard() {
+            return RecordingCard.this;
+        }
+
+        @Override
+        public int getChannelNumber() {
+            return channel.getChannelNumber();
+        }
+
+        @Override
+        public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+            long start = System.nanoTime();
+            ResponseAPDU response = channel.transmit(command);
+            record(command, response, System.nanoTime() - start);
+            return response;
+        }
+
+        @Override
+        public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+            byte[] bytes = new byte[command.remaining()];
+            command.get(bytes);
+            byte[] answer = transmit(new CommandAPDU(bytes)).getBytes();
+            response.put(answer);
+            return answer.length;
+        }
+
+        @Override
+        public void close() throws CardException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.smartcardio.Card;
+
+import net.devbase.jfreesteel.EidCard;
+import net.devbase.jfreesteel.EidInfo;
+import net.devbase.jfreesteel.TagMapper;
+import net.devbase.jfreesteel.TlvReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of the TLV encoded data files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("restriction") // javax.smartcardio.Card
+public class TlvBenchmark {
+
+    /** Gives access to the protected EidCard parser, never instantiated */
+    private abstract static class Parser extends EidCard {
+        private Parser(Card card) {
+            super(card);
+        }
+
+        static void addAll(EidInfo.Builder builder, byte[] file, TagMapper tagMapper) {
+            addAllToBuilder(builder, file, tagMapper);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, byte[]> parseTlv(CardData data) {
+        return EidCard.parseTlv(data.personalFile);
+    }
+
+    @Benchmark
+    public void tlvReader(CardData data, Blackhole blackhole) {
+        TlvReader tlv = new TlvReader(data.personalFile);
+        while (tlv.next()) {
+            blackhole.consume(tlv.tag());
+            blackhole.consume(tlv.valueLength());
+        }
+    }
+
+    @Benchmark
+    public EidInfo addAllToBuilder(CardData data) {
+        EidInfo.Builder builder = new EidInfo.Builder();
+        Parser.addAll(builder, data.documentFile, EidCard.DOCUMENT_TAGMAPPER);
+        Parser.addAll(builder, data.personalFile, EidCard.PERSONAL_TAGMAPPER);
+        Parser.addAll(builder, data.residenceFile, EidCard.RESIDENCE_TAGMAPPER);
+        return builder.build();
+    }
+}
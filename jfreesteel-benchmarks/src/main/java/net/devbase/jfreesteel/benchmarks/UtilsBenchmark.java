@@ -0,0 +1,68 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.devbase.jfreesteel.Utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Byte array and image conversions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    @Benchmark
+    public String bytes2HexString_atr(CardData data) {
+        return Utils.bytes2HexString(data.atr);
+    }
+
+    @Benchmark
+    public String bytes2HexString_document(CardData data) {
+        return Utils.bytes2HexString(data.documentFile);
+    }
+
+    @Benchmark
+    public String bytes2UTF8String(CardData data) {
+        return Utils.bytes2UTF8String(data.residenceFile);
+    }
+
+    @Benchmark
+    public String bytes2Base64String_photo(CardData data) {
+        return Utils.bytes2Base64String(data.photoBytes);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String image2Base64String_photo(CardData data) {
+        return Utils.image2Base64String(data.photo);
+    }
+}
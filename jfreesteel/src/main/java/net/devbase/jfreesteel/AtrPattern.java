@@ -0,0 +1,129 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Arrays;
+
+import javax.smartcardio.ATR;
+
+/**
+ * Pattern matching the ATRs of a card profile.
+ *
+ * Either the whole ATR is matched, with a mask selecting the bits that have to be equal, or
+ * only the start of the historical bytes is matched, for the card batches differing in the
+ * interface bytes but sharing the card issuer data.
+ */
+@SuppressWarnings("restriction") // javax.smartcardio.ATR
+public final class AtrPattern {
+
+    private final byte[] value;
+    private final byte[] mask;
+    private final boolean historical;
+
+    private AtrPattern(byte[] value, byte[] mask, boolean historical) {
+        this.value = value;
+        this.mask = mask;
+        this.historical = historical;
+    }
+
+    /** Matches the ATR exactly */
+    public static AtrPattern exact(byte[] atr) {
+        byte[] mask = new byte[atr.length];
+        Arrays.fill(mask, (byte) 0xFF);
+        return new AtrPattern(atr.clone(), mask, false);
+    }
+
+    /**
+     * Matches the ATRs of the same length, equal to the given ATR in the bits set in the mask.
+     *
+     * @throws IllegalArgumentException if the mask is not as long as the ATR
+     */
+    public static AtrPattern masked(byte[] atr, byte[] mask) {
+        if (atr.length != mask.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Mask length %d does not match ATR length %d", mask.length, atr.length));
+        }
+        byte[] value = new byte[atr.length];
+        for (int i = 0; i < atr.length; i++) {
+            value[i] = (byte) (atr[i] & mask[i]);
+        }
+        return new AtrPattern(value, mask.clone(), false);
+    }
+
+    /** Matches the ATRs with the historical bytes starting with the prefix */
+    public static AtrPattern historicalPrefix(byte[] prefix) {
+        return new AtrPattern(prefix.clone(), null, true);
+    }
+
+    /** Returns true if the pattern matches the historical bytes instead of the whole ATR */
+    public boolean isHistoricalPrefix() {
+        return historical;
+    }
+
+    /** Returns the ATR, or the historical bytes prefix, with the masked out bits cleared */
+    public byte[] getValue() {
+        return value.clone();
+    }
+
+    /** Returns the mask, or null for the historical bytes prefix */
+    public byte[] getMask() {
+        return mask == null ? null : mask.clone();
+    }
+
+    /** Returns true if the ATR matches the pattern */
+    public boolean matches(byte[] atr) {
+        if (historical) {
+            byte[] bytes = new ATR(atr).getHistoricalBytes();
+            return bytes.length >= value.length
+                    && Arrays.equals(value, Arrays.copyOf(bytes, value.length));
+        }
+        if (atr.length != value.length) {
+            return false;
+        }
+        for (int i = 0; i < atr.length; i++) {
+            if ((atr[i] & mask[i] & 0xFF) != (value[i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Value byte at the position, for the registry trie */
+    int value(int i) {
+        return value[i] & 0xFF;
+    }
+
+    /** Mask byte at the position, for the registry trie */
+    int mask(int i) {
+        return mask[i] & 0xFF;
+    }
+
+    int length() {
+        return value.length;
+    }
+
+    @Override
+    public String toString() {
+        if (historical) {
+            return "AtrPattern[historical " + Utils.bytes2HexString(value) + "]";
+        }
+        return "AtrPattern[" + Utils.bytes2HexString(value)
+                + " mask " + Utils.bytes2HexString(mask) + "]";
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.smartcardio.CardException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the card contents, used to skip reading the files when the same card is inserted
+ * again.
+ *
+ * A card is identified by its ATR and the document number. Document and personal data and
+ * the photo never change for the issued card, but the place of residence is updated on the
+ * card when the holder moves, so the cached entry is used only if the residence file read
+ * from the card is the same as the cached one. Changes of the other files are not detected.
+ *
+ * Only EidCard.readAll() fills the cache, as the other reads do not read all the files. With
+ * the cache set, readEidInfo() and readAll() still read the document and the residence file
+ * to validate the entry, and readEidPhotoBytes() the document file.
+ *
+ * Snapshots are kept in memory and the least recently used are evicted once the capacity is
+ * reached. Optionally, they are also stored on disk, encrypted with AES and authenticated
+ * with HMAC-SHA256 as they hold personal data. Files that can not be authenticated are
+ * ignored and removed.
+ *
+ * Cache errors never fail the card read, they are logged and the card is read as usual.
+ * The cache is thread safe and can be shared by all readers.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * EidCache cache = new EidCache(100);
+ * card.setCache(cache);
+ * EidSnapshot snapshot = card.readAll();
+ * }
+ * </pre>
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidCache {
+
+    private final static Logger logger = LoggerFactory.getLogger(EidCache.class);
+
+    private static final int FORMAT_VERSION = 2;
+    private static final String SUFFIX = ".eid";
+    private static final int IV_SIZE = 16;
+    private static final int MAC_SIZE = 32;
+
+    /** Card identity, read from the card */
+    public static final class Key {
+        private final byte[] atr;
+        private final String documentNumber;
+
+        public Key(byte[] atr, String documentNumber) {
+            this.atr = atr.clone();
+            this.documentNumber = documentNumber;
+        }
+
+        public byte[] getAtr() {
+            return atr.clone();
+        }
+
+        public String getDocumentNumber() {
+            return documentNumber;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Arrays.equals(atr, other.atr) && documentNumber.equals(other.documentNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(atr) * 31 + documentNumber.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s/%s", Utils.bytes2HexString(atr), documentNumber);
+        }
+    }
+
+    private final Map<Key, EidSnapshot> entries;
+    private final File directory;
+    private final SecretKeySpec encryptionKey;
+    private final SecretKeySpec macKey;
+    private final SecureRandom random;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates the in-memory cache.
+     *
+     * @param capacity Maximum number of cards to keep in memory
+     */
+    public EidCache(int capacity) {
+        this(capacity, null, null);
+    }
+
+    /**
+     * Creates the cache that also stores the snapshots on disk, one file per card.
+     *
+     * @param capacity Maximum number of cards to keep in memory
+     * @param directory Directory for the cache files, or null for the in-memory cache only
+     * @param key Secret key used to encrypt and authenticate the cache files, it should be
+     *     kept outside of the cache directory
+     */
+    public EidCache(final int capacity, File directory, SecretKey key) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+        }
+        if (directory != null && key == null) {
+            throw new IllegalArgumentException("Key is required to store the cache on disk");
+        }
+
+        entries = new LinkedHashMap<Key, EidSnapshot>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, EidSnapshot> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        this.directory = directory;
+        if (directory != null) {
+            byte[] encoded = key.getEncoded();
+            // derive separate keys for encryption and authentication
+            encryptionKey = new SecretKeySpec(
+                    Arrays.copyOf(hmac(encoded, "encryption"), 16), "AES");
+            macKey = new SecretKeySpec(hmac(encoded, "authentication"), "HmacSHA256");
+            random = new SecureRandom();
+        } else {
+            encryptionKey = null;
+            macKey = null;
+            random = null;
+        }
+    }
+
+    /**
+     * Returns the cached snapshot, or null if the card is not cached or the residence file
+     * changed.
+     *
+     * @param residenceFile Residence file, as read from the card
+     */
+    public EidSnapshot get(Key key, byte[] residenceFile) {
+        EidSnapshot snapshot = lookup(key);
+        if (snapshot != null && !Arrays.equals(snapshot.getResidenceFile(), residenceFile)) {
+            logger.info(String.format("Cache entry outdated, residence changed: %s", key));
+            snapshot = null;
+        }
+        return count(key, snapshot);
+    }
+
+    /**
+     * Returns the cached photo, or null if the card is not cached. The photo does not
+     * change for the issued card, so the residence file is not needed.
+     */
+    public byte[] getPhotoBytes(Key key) {
+        EidSnapshot snapshot = count(key, lookup(key));
+        return snapshot == null ? null : snapshot.getPhotoBytes();
+    }
+
+    private EidSnapshot lookup(Key key) {
+        EidSnapshot snapshot;
+        synchronized (entries) {
+            snapshot = entries.get(key);
+        }
+        if (snapshot == null && directory != null) {
+            snapshot = load(key);
+            if (snapshot != null) {
+                synchronized (entries) {
+                    entries.put(key, snapshot);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private EidSnapshot count(Key key, EidSnapshot snapshot) {
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            logger.info(String.format("Cache hit: %s", key));
+        } else {
+            misses.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    /** Stores the snapshot read from the card. */
+    public void put(Key key, EidSnapshot snapshot) {
+        synchronized (entries) {
+            entries.put(key, snapshot);
+        }
+        if (directory != null) {
+            store(key, snapshot);
+        }
+    }
+
+    /** Removes all cached snapshots, including the files on disk. */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        if (directory != null) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(SUFFIX)) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the number of snapshots kept in memory. */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** Cache file name, same for all versions of the card residence file */
+    private File file(Key key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(key.atr);
+            digest.update(key.documentNumber.getBytes(StandardCharsets.UTF_8));
+            return new File(directory,
+                    Utils.bytes2HexStringCompact(digest.digest()).toLowerCase() + SUFFIX);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private EidSnapshot load(Key key) {
+        File file = file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < IV_SIZE + MAC_SIZE) {
+                throw new GeneralSecurityException("File too short");
+            }
+            int macOffset = bytes.length - MAC_SIZE;
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            mac.update(bytes, 0, macOffset);
+            if (!MessageDigest.isEqual(mac.doFinal(),
+                    Arrays.copyOfRange(bytes, macOffset, bytes.length))) {
+                throw new GeneralSecurityException("Authentication failed");
+            }
+
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey,
+                    new IvParameterSpec(bytes, 0, IV_SIZE));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    cipher.doFinal(bytes, IV_SIZE, macOffset - IV_SIZE)));
+
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            Key stored = new Key(readBytes(in), in.readUTF());
+            if (!stored.equals(key)) {
+                return null;
+            }
+
+            byte[] document = readBytes(in);
+            byte[] personal = readBytes(in);
+            byte[] residence = readBytes(in);
+            byte[] photo = readBytes(in);
+            return new EidSnapshot(EidCard.parseEidInfo(document, personal, residence),
+                    photo, document, personal, residence);
+
+        } catch (GeneralSecurityException | IOException | CardException e) {
+            logger.warn(String.format("Removing invalid cache file %s: %s",
+                    file.getName(), e.getMessage()));
+            file.delete();
+            return null;
+        }
+    }
+
+    private void store(Key key, EidSnapshot snapshot) {
+        File file = file(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(plain);
+            data.writeInt(FORMAT_VERSION);
+            writeBytes(data, key.atr);
+            data.writeUTF(key.documentNumber);
+            writeBytes(data, snapshot.getDocumentFile());
+            writeBytes(data, snapshot.getPersonalFile());
+            writeBytes(data, snapshot.getResidenceFile());
+            writeBytes(data, snapshot.getPhotoBytes());
+
+            byte[] iv = new byte[IV_SIZE];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+            byte[] encrypted = cipher.doFinal(plain.toByteArray());
+
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            mac.update(iv);
+            mac.update(encrypted);
+
+            directory.mkdirs();
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(iv);
+                out.write(encrypted);
+                out.write(mac.doFinal());
+            }
+            if (!temp.renameTo(file)) {
+                file.delete();
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Can not rename " + temp.getName());
+                }
+            }
+        } catch (GeneralSecurityException | IOException e) {
+            logger.warn(String.format("Storing cache file %s failed: %s",
+                    file.getName(), e.getMessage()));
+            temp.delete();
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] hmac(byte[] key, String label) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(label.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
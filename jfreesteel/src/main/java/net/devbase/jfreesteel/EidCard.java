@@ -22,14 +22,23 @@ import java.awt.Image;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 import javax.smartcardio.Card;
 import javax.smartcardio.CardChannel;
 import javax.smartcardio.CardException;
+import javax.smartcardio.CardNotPresentException;
 import javax.smartcardio.CommandAPDU;
 import javax.smartcardio.ResponseAPDU;
 
@@ -64,6 +73,76 @@ public abstract class EidCard {
     protected Card card;
     protected CardChannel channel;
 
+    /** Extended length READ BINARY support, null until probed on this card */
+    private Boolean extendedLength = null;
+
+    /** Largest extended length READ BINARY chunk not yet rejected by the card or reader */
+    private int extendedBlockSize = EXTENDED_BLOCK_SIZE;
+
+    /** Card contents cache, null if disabled */
+    private EidCache cache = null;
+
+    /** Instrumentation used by new cards */
+    private static volatile EidCardInstrumentation defaultInstrumentation =
+            EidCardInstrumentation.NOOP;
+
+    private volatile EidCardInstrumentation instrumentation = defaultInstrumentation;
+
+    /** Card type reported to the instrumentation */
+    private final String cardType = getClass().getSimpleName();
+
+    /** Selected file id, reported to the instrumentation */
+    private int selectedFile = EidCardInstrumentation.NO_FILE;
+
+    /** Threads running the asynchronous reads of all cards */
+    private static ExecutorService asyncPool;
+
+    /** Queue of the asynchronous reads, created on the first read */
+    private SerialExecutor asyncQueue = null;
+
+    /** Default number of times a failed APDU is repeated */
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /** Number of APDUs repeated after a transient error */
+    private volatile int retryCount = 0;
+
+    /** Selected file path and the expected response length, to select it again on error */
+    private byte[] selectedName = null;
+    private int selectedNe = 0;
+
+    /**
+     * Selection state of the channel: true when the card application is selected, and when
+     * the last selected file is still the current EF, with its select response
+     */
+    private boolean applicationSelected = false;
+    private boolean fileSelected = false;
+    private byte[] selectedResponse = null;
+
+    private boolean selectionTracking = true;
+
+    /** Reads shared by concurrent callers */
+    private enum SharedRead { INFO, PHOTO, ALL }
+
+    /** Reads in progress, joined by the concurrent callers, guarded by itself */
+    private final Map<SharedRead, FutureTask<?>> inFlight =
+            new HashMap<SharedRead, FutureTask<?>>();
+
+    /** APDU exchanges and bytes transferred since the current file read started */
+    private int fileApdus = 0;
+    private int fileBytes = 0;
+
+    /** READ BINARY command reused for every block, with Le in the short or extended form */
+    private final byte[] readCommand = {0x00, (byte) 0xB0, 0x00, 0x00, 0x00, 0x00, 0x00};
+    private final ByteBuffer readCommandBuffer = ByteBuffer.wrap(readCommand);
+
+    /** READ BINARY response reused for every block, allocated on the first read */
+    private ByteBuffer readResponse = null;
+
+    /** Layout and expected sizes of the files, set by the card implementation */
+    private volatile ReadPlan readPlan = null;
+
     // Constructor
     protected EidCard(final Card card) {
         this.card = card;
@@ -73,7 +152,8 @@ public abstract class EidCard {
     /**
      * Factory method
      * 
-     * Return instance of EidCard implementation supporting the given card
+     * Return instance of EidCard implementation supporting the given card, created by the
+     * card profile resolved from the card ATR, see EidCardProfiles
      *
      * @param card
      * @throws SecurityException
@@ -86,22 +166,15 @@ public abstract class EidCard {
             throws IllegalArgumentException, SecurityException, IllegalStateException, CardException {
         final byte[] atrBytes = card.getATR().getBytes();
 
-        if(EidCardApollo.isKnownAtr(atrBytes))
-            return new EidCardApollo(card);
-
-        if(EidCardGemalto.isKnownAtr(atrBytes))
-            return new EidCardGemalto(card);
+        EidCardProfile profile = EidCardProfiles.getDefault().resolve(atrBytes);
+        if(profile != null)
+            return profile.createCard(card);
 
         throw new IllegalArgumentException(
                 String.format("EidCard: Card is not recognized as Serbian eID. Card ATR: %s",
                         Utils.bytes2HexString(atrBytes)));
     }
 
-    /** Factory "selection" method */
-    protected static boolean isKnownAtr(final byte[] atrBytes) {
-        return false;
-    }
-
     /** Document data */
     protected static final byte[] DOCUMENT_FILE  = {0x0F, 0x02};
 
@@ -127,21 +200,16 @@ public abstract class EidCard {
      * [tag 16bit LE] [len 16bit LE] [len bytes of data] | [fld] [06] ...
      * 
      * @return a map of integer tags to corresponding byte chunks.
+     * @throws IllegalArgumentException if the data is truncated
      */
     public static Map<Integer, byte[]> parseTlv(final byte[] bytes) {
         HashMap<Integer, byte[]> out = new HashMap<Integer, byte[]>();
 
         // [fld 16bit LE] [len 16bit LE] [len bytes of data] | [fld] [06] ...
 
-        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-
-        // repeat as long as we have next tag and len...
-        while (buffer.remaining() > 4) {
-            char tag = buffer.getChar();
-            char length = buffer.getChar();
-            byte[] range = new byte[(int) length];
-            buffer.get(range);
-            out.put((int) tag, range);
+        TlvReader tlv = new TlvReader(bytes);
+        while (tlv.next()) {
+            out.put(tlv.tag(), tlv.value());
         }
 
         return out;
@@ -149,6 +217,13 @@ public abstract class EidCard {
 
     protected static final int BLOCK_SIZE = 0xFF;
 
+    /**
+     * Largest chunk requested with an extended length READ BINARY.
+     *
+     * PC/SC stacks commonly use 8 KiB receive buffers, so there is no point to ask for more.
+     */
+    protected static final int EXTENDED_BLOCK_SIZE = 0x2000;
+
     /**
      * Read EF contents, selecting by file path.
      * 
@@ -157,17 +232,584 @@ public abstract class EidCard {
      */
     abstract protected byte[] readElementaryFile(final byte[] name, boolean strip_tag) throws CardException;
 
-    /** Reads the content of the selected file starting at offset, at most length bytes */
+    /**
+     * Use the cache to skip reading the card files when the same card is inserted again.
+     *
+     * With the cache set, readEidInfo() and readAll() read the document and the residence file
+     * first, and read the rest of the files only if the card is found in the cache with the
+     * same residence file. readEidPhotoBytes() reads the document file first. Only readAll()
+     * stores the card in the cache, see EidCache for the limitations.
+     *
+     * @param cache Cache shared between cards, or null to disable caching
+     */
+    public void setCache(EidCache cache) {
+        this.cache = cache;
+    }
+
+    public EidCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the instrumentation used by the cards created after the call.
+     *
+     * @param instrumentation Instrumentation, or null to disable it
+     */
+    public static void setDefaultInstrumentation(EidCardInstrumentation instrumentation) {
+        defaultInstrumentation =
+                instrumentation == null ? EidCardInstrumentation.NOOP : instrumentation;
+    }
+
+    public static EidCardInstrumentation getDefaultInstrumentation() {
+        return defaultInstrumentation;
+    }
+
+    /**
+     * Sets the instrumentation receiving the APDU exchanges and file reads of this card.
+     *
+     * @param instrumentation Instrumentation, or null to disable it
+     */
+    public void setInstrumentation(EidCardInstrumentation instrumentation) {
+        this.instrumentation =
+                instrumentation == null ? EidCardInstrumentation.NOOP : instrumentation;
+    }
+
+    public EidCardInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sends the command APDU to the card, reporting the exchange to the instrumentation.
+     *
+     * All commands should be sent using this method. The clock is not read when the
+     * instrumentation is disabled.
+     */
+    protected ResponseAPDU transmit(CommandAPDU command) throws CardException {
+        EidCardInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation == EidCardInstrumentation.NOOP) {
+            return channel.transmit(command);
+        }
+
+        int bytesOut = 4 + command.getNc();
+        long start = System.nanoTime();
+        ResponseAPDU response;
+        try {
+            response = channel.transmit(command);
+        } catch (CardException e) {
+            instrumentation.apdu(cardType, command.getINS(), selectedFile,
+                    EidCardInstrumentation.TRANSMIT_FAILED, bytesOut, 0, System.nanoTime() - start);
+            throw e;
+        }
+        long nanos = System.nanoTime() - start;
+        int bytesIn = response.getNr() + 2;
+        fileApdus++;
+        fileBytes += bytesOut + bytesIn;
+        instrumentation.apdu(cardType, command.getINS(), selectedFile, response.getSW(),
+                bytesOut, bytesIn, nanos);
+        return response;
+    }
+
+    /**
+     * Sends the encoded command APDU to the card and puts the response with the status word
+     * into the buffer, reporting the exchange to the instrumentation.
+     *
+     * Used to send the commands repeated for every block from reused buffers, without
+     * allocating our own CommandAPDU and ResponseAPDU objects. The provider may still copy
+     * the buffers, the Sun provider does, and handles 61xx and 6Cxx itself.
+     *
+     * @return Length of the response, including the status word
+     */
+    protected int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+        EidCardInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation == EidCardInstrumentation.NOOP) {
+            return channel.transmit(command, response);
+        }
+
+        int ins = command.get(command.position() + 1) & 0xFF;
+        int bytesOut = 4 + commandDataLength(command);
+        int start = response.position();
+        long startNanos = System.nanoTime();
+        int bytesIn;
+        try {
+            bytesIn = channel.transmit(command, response);
+        } catch (CardException e) {
+            instrumentation.apdu(cardType, ins, selectedFile, EidCardInstrumentation.TRANSMIT_FAILED,
+                    bytesOut, 0, System.nanoTime() - startNanos);
+            throw e;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        int sw = bytesIn < 2 ? EidCardInstrumentation.TRANSMIT_FAILED
+                : ((response.get(start + bytesIn - 2) & 0xFF) << 8)
+                        | (response.get(start + bytesIn - 1) & 0xFF);
+        fileApdus++;
+        fileBytes += bytesOut + bytesIn;
+        instrumentation.apdu(cardType, ins, selectedFile, sw, bytesOut, bytesIn, nanos);
+        return bytesIn;
+    }
+
+    /** Returns Nc of the encoded command APDU, as CommandAPDU.getNc() does */
+    private static int commandDataLength(ByteBuffer command) {
+        int length = command.remaining();
+        if (length <= 5) {
+            return 0;
+        }
+        int position = command.position();
+        int lc = command.get(position + 4) & 0xFF;
+        if (lc != 0) {
+            return lc;
+        }
+        if (length == 7) {
+            return 0;
+        }
+        return ((command.get(position + 5) & 0xFF) << 8) | (command.get(position + 6) & 0xFF);
+    }
+
+    /**
+     * Reads the EF with readElementaryFile(), reporting the file read to the instrumentation.
+     *
+     * @throws CardException if the thread was interrupted or the asynchronous read cancelled
+     */
+    private byte[] readFile(final byte[] name, boolean strip_tag) throws CardException {
+        if (EidFuture.isStopped()) {
+            throw new CardException(String.format("Card read stopped before file %04X",
+                    fileId(name)));
+        }
+        EidCardInstrumentation instrumentation = this.instrumentation;
+        if (instrumentation == EidCardInstrumentation.NOOP) {
+            return readElementaryFile(name, strip_tag);
+        }
+
+        fileApdus = 0;
+        fileBytes = 0;
+        long start = System.nanoTime();
+        byte[] data = readElementaryFile(name, strip_tag);
+        long nanos = System.nanoTime() - start;
+        int file = fileId(name);
+        instrumentation.fileRead(cardType, file, fileApdus, fileBytes, nanos);
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Read file %04X: apdus=%d, bytes=%d, time=%.1fms",
+                    file, fileApdus, fileBytes, nanos / 1e6));
+        }
+        return data;
+    }
+
+    private static int fileId(final byte[] name) {
+        return ((name[name.length - 2] & 0xFF) << 8) | (name[name.length - 1] & 0xFF);
+    }
+
+    /**
+     * Enable or disable extended length READ BINARY commands. Enabled by default.
+     *
+     * When enabled, the first read larger than BLOCK_SIZE probes if the card and the reader
+     * accept extended length APDUs. The card falls back to short APDUs if the card or the
+     * reader rejects the length, or the first extended APDU fails in any other way.
+     */
+    public void setExtendedLengthEnabled(boolean enabled) {
+        extendedLength = enabled ? null : Boolean.FALSE;
+        extendedBlockSize = EXTENDED_BLOCK_SIZE;
+    }
+
+    /** Returns true if the card is known to accept extended length READ BINARY commands */
+    public boolean isExtendedLengthSupported() {
+        return extendedLength == Boolean.TRUE;
+    }
+
+    public ReadPlan getReadPlan() {
+        return readPlan;
+    }
+
+    /**
+     * Sets the plan used to read the files, instead of the plan registered for the card ATR.
+     *
+     * @throws IllegalArgumentException if the plan uses a different file layout than the card
+     */
+    public void setReadPlan(ReadPlan plan) {
+        if (plan == null) {
+            throw new IllegalArgumentException("Read plan is null");
+        }
+        if (readPlan != null && plan.getLayout() != readPlan.getLayout()) {
+            throw new IllegalArgumentException(String.format(
+                    "Read plan %s does not match the card layout %s", plan, readPlan.getLayout()));
+        }
+        readPlan = plan;
+    }
+
+    /**
+     * Set how many times a failed APDU is repeated. APDUs failed with a transient error, a
+     * transmission error or a 6Fxx, 6281, 64xx or 65xx status, are repeated right away, and
+     * then after selecting the file again. The file is read on from the failed offset.
+     *
+     * Errors of a removed card are not repeated. After a reset of the card by another
+     * application the file is selected again and the APDU repeated once. A failure to
+     * select the file again counts as another failed attempt.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid number of retries %d", maxRetries));
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /** Returns the number of APDUs repeated after a transient error on this card */
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    /** CardException with the response status word */
+    private static class StatusException extends CardException {
+        private static final long serialVersionUID = 1L;
+
+        final int sw;
+
+        /** Number of bytes returned with the status and copied, as with 6282 */
+        final int read;
+
+        StatusException(String message, int sw) {
+            this(message, sw, 0);
+        }
+
+        StatusException(String message, int sw, int read) {
+            super(message);
+            this.sw = sw;
+            this.read = read;
+        }
+    }
+
+    /**
+     * Returns true if the card rejected READ BINARY asking for more data than the file has,
+     * with 6282 (end of file reached), 6700 (wrong length), 6B00 (offset or length outside
+     * the file) or 6Cxx (wrong Le).
+     */
+    protected static boolean isPastEndOfFile(CardException e) {
+        if (!(e instanceof StatusException)) {
+            return false;
+        }
+        int sw = ((StatusException) e).sw;
+        return sw == 0x6282 || sw == 0x6700 || sw == 0x6B00 || (sw & 0xFF00) == 0x6C00;
+    }
+
+    /**
+     * Returns the number of bytes the failed READ BINARY copied before the error, the data
+     * returned with 6282 (end of file reached), 0 for other errors.
+     */
+    protected static int readBeforeError(CardException e) {
+        return e instanceof StatusException ? ((StatusException) e).read : 0;
+    }
+
+    /** PC/SC errors of a card that is gone, repeating the APDU can not help */
+    private static final String[] CARD_GONE_ERRORS = {
+        "SCARD_W_REMOVED_CARD", "SCARD_E_NO_SMARTCARD", "SCARD_E_READER_UNAVAILABLE"
+    };
+
+    /** PC/SC error of a card reset by another application, the selection is lost */
+    private static final String CARD_RESET_ERROR = "SCARD_W_RESET_CARD";
+
+    /** True after an APDU was repeated after a card reset, to repeat it once only */
+    private boolean resetRetried = false;
+
+    /**
+     * Returns true if the error or one of its causes reports the PC/SC error. The Sun provider
+     * throws plain CardExceptions, with the PCSCException named by the error as the cause.
+     */
+    private static boolean isPcscError(Throwable e, String... errors) {
+        for (; e != null; e = e.getCause()) {
+            String message = e.getMessage();
+            if (message == null) {
+                continue;
+            }
+            for (String error : errors) {
+                if (message.contains(error)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Returns true if the APDU may succeed when repeated */
+    private static boolean isTransient(CardException e) {
+        if (e instanceof StatusException) {
+            int sw = ((StatusException) e).sw;
+            return (sw & 0xFF00) == 0x6F00 || sw == 0x6281
+                    || (sw & 0xFF00) == 0x6400 || (sw & 0xFF00) == 0x6500;
+        }
+        return !(e instanceof CardNotPresentException) && !isPcscError(e, CARD_GONE_ERRORS);
+    }
+
+    /**
+     * Decides if the failed APDU is repeated, and if the application and the file have to be
+     * selected again before. They are selected again before all but the first retry, and
+     * right away after a card reset, which is retried once only.
+     *
+     * @return true to select again before the next attempt
+     * @throws CardException the error, if the APDU should not be repeated
+     */
+    private boolean retry(CardException error, int attempt, String what) throws CardException {
+        // the card may have been reset, select again before the next operation
+        invalidateSelection();
+        if (attempt == 0) {
+            resetRetried = false;
+        }
+        boolean reset = isPcscError(error, CARD_RESET_ERROR);
+        if (attempt >= maxRetries || !isTransient(error) || (reset && resetRetried)) {
+            throw error;
+        }
+        resetRetried |= reset;
+        retryCount++;
+        logger.info(String.format("Retrying %s after %s", what, error.getMessage()));
+        return reset || attempt > 0;
+    }
+
+    /**
+     * Selects the application and the last selected file again, after an error. Errors are
+     * retried as the failure of the APDU being repeated.
+     */
+    private void reselect() throws CardException {
+        selectApplication();
+        applicationSelected = true;
+        if (selectedName != null) {
+            selectFileOnce(selectedName, selectedNe);
+        }
+    }
+
+    /**
+     * Enable or disable skipping SELECT commands for the application and the file already
+     * selected on the channel. Enabled by default.
+     *
+     * The selection is tracked within a read operation, holding the card exclusively, and
+     * selected again after an error. Every read operation selects the application again, as
+     * other applications may have selected files on the card in between. Disable to select
+     * the application before every file.
+     */
+    public void setSelectionTrackingEnabled(boolean enabled) {
+        selectionTracking = enabled;
+        invalidateSelection();
+    }
+
+    /**
+     * Begins an exclusive session with the card. Other applications may have selected another
+     * application or file since the last session, so the selection is forgotten.
+     */
+    private void beginExclusive() throws CardException {
+        card.beginExclusive();
+        invalidateSelection();
+    }
+
+    /** Forgets the selected application and file, so they are selected again before use */
+    protected void invalidateSelection() {
+        applicationSelected = false;
+        fileSelected = false;
+        selectedResponse = null;
+    }
+
+    /**
+     * Selects the card application, if the card has one. Called before the first file is
+     * selected, and before a file is selected again after an error. Does nothing by default.
+     */
+    protected void selectApplication() throws CardException {
+    }
+
+    /**
+     * Reads the content of the selected file starting at offset, at most length bytes.
+     *
+     * Allocates the returned array, use readBinary(int, byte[], int, int) to read the blocks
+     * of a file into a single array instead.
+     */
     protected byte[] readBinary(int offset, int length) throws CardException {
-        int readSize = Math.min(length, BLOCK_SIZE);
-        ResponseAPDU response = channel.transmit(
-                new CommandAPDU(0x00, 0xB0, offset >> 8, offset & 0xFF, readSize));
-        if (response.getSW() != 0x9000) {
-            throw new CardException(
-                    String.format("Read binary failed: offset=%d, length=%d, status=%s", 
-                            offset, length, Utils.int2HexString(response.getSW())));
+        byte[] data = new byte[Math.min(length, EXTENDED_BLOCK_SIZE)];
+        int read = readBinary(offset, data, 0, length);
+        return read == data.length ? data : Arrays.copyOf(data, read);
+    }
+
+    /**
+     * Reads the content of the selected file starting at offset into the array, at most
+     * length bytes in a single READ BINARY.
+     *
+     * The command and the response are kept in buffers reused for every block, so this
+     * method allocates nothing per block, though the provider may copy the buffers.
+     *
+     * @return Number of bytes read
+     */
+    protected int readBinary(int offset, byte[] dest, int destOffset, int length)
+            throws CardException {
+        return readBinary(offset, null, dest, destOffset, length);
+    }
+
+    /**
+     * Reads the content of the selected file starting at offset, at most length bytes in a
+     * single READ BINARY, splitting it between two arrays: the first header.length bytes go
+     * to the header and the rest to dest. Used to read the file header and the data together.
+     *
+     * @return Number of bytes read, including the header
+     */
+    protected int readBinary(int offset, byte[] header, byte[] dest, int destOffset, int length)
+            throws CardException {
+        boolean reselect = false;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (reselect) {
+                    reselect();
+                }
+                return readBinaryOnce(offset, header, dest, destOffset, length);
+            } catch (CardException e) {
+                reselect = retry(e, attempt, String.format("read binary at offset %d", offset));
+            }
+        }
+    }
+
+    /**
+     * Reads length bytes of the selected file starting at offset into the array, in as few
+     * READ BINARY commands as the card and the reader accept.
+     */
+    protected void readBinaryFully(int offset, byte[] dest, int destOffset, int length)
+            throws CardException {
+        while (length > 0) {
+            int read = readBinary(offset, dest, destOffset, length);
+            if (read == 0) {
+                throw new CardException(String.format(
+                        "Read binary returned no data: offset=%d, length=%d", offset, length));
+            }
+            offset += read;
+            destOffset += read;
+            length -= read;
+        }
+    }
+
+    private int readBinaryOnce(int offset, byte[] header, byte[] dest, int destOffset,
+            int length) throws CardException {
+        if (length > BLOCK_SIZE && extendedLength != Boolean.FALSE) {
+            int read = readBinaryExtended(offset, header, dest, destOffset, length);
+            if (read >= 0) {
+                return read;
+            }
+        }
+
+        int sw = transmitReadBinary(offset, Math.min(length, BLOCK_SIZE));
+        if (sw != 0x9000) {
+            throw readBinaryFailed(String.format("Read binary failed: offset=%d, length=%d",
+                    offset, length), sw, header, dest, destOffset, length);
         }
-        return response.getData();
+        return readResponseData(header, dest, destOffset, length);
+    }
+
+    /**
+     * Returns the error of the READ BINARY failed with the status word. The data returned with
+     * 6282 (end of file reached) is copied, for the caller to use instead of reading it again.
+     */
+    private StatusException readBinaryFailed(String message, int sw, byte[] header, byte[] dest,
+            int destOffset, int length) {
+        int read = sw == 0x6282 ? readResponseData(header, dest, destOffset, length) : 0;
+        return new StatusException(
+                String.format("%s, status=%s", message, Utils.int2HexString(sw)), sw, read);
+    }
+
+    /**
+     * Try to read using an extended length APDU, halving the chunk size each time the card or
+     * the reader rejects the length with 6700 or 6Cxx. Returns -1 once the chunk size drops to
+     * BLOCK_SIZE, the caller should then continue with short APDUs. Other failures of the
+     * first extended APDU also fall back to short APDUs, as some readers fail to transmit
+     * them, except for a reset or a removed card. Once extended length APDUs are known to
+     * work, other failures are thrown to be retried.
+     */
+    private int readBinaryExtended(int offset, byte[] header, byte[] dest, int destOffset,
+            int length) throws CardException {
+        while (extendedLength != Boolean.FALSE) {
+            int readSize = Math.min(length, extendedBlockSize);
+            if (readSize <= BLOCK_SIZE) {
+                return -1;
+            }
+            int sw;
+            try {
+                sw = transmitReadBinary(offset, readSize);
+            } catch (CardException e) {
+                // a reset or a removed card is not a failure of the extended APDU
+                if (extendedLength == Boolean.TRUE || !isTransient(e)
+                        || isPcscError(e, CARD_RESET_ERROR)) {
+                    throw e;
+                }
+                logger.info(String.format(
+                        "Extended read binary failed, using short APDUs: %s", e.getMessage()));
+                extendedLength = Boolean.FALSE;
+                return -1;
+            }
+            if (sw == 0x9000) {
+                if (extendedLength == null) {
+                    logger.info("Extended length APDUs supported");
+                }
+                extendedLength = Boolean.TRUE;
+                return readResponseData(header, dest, destOffset, length);
+            }
+
+            StatusException error = readBinaryFailed(
+                    String.format("Extended read binary rejected: length=%d", readSize),
+                    sw, header, dest, destOffset, length);
+            if (!isWrongLength(sw)) {
+                if (extendedLength == Boolean.TRUE || sw == 0x6282) {
+                    // data returned with 6282, so the length is supported
+                    extendedLength = Boolean.TRUE;
+                    throw error;
+                }
+                logger.info(String.format("%s, using short APDUs", error.getMessage()));
+                extendedLength = Boolean.FALSE;
+                return -1;
+            }
+            logger.info(error.getMessage());
+
+            extendedBlockSize = readSize / 2;
+            if (extendedBlockSize <= BLOCK_SIZE) {
+                logger.info("Extended length APDUs not supported, using short APDUs");
+                extendedLength = Boolean.FALSE;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns true if the status word rejects the Le, 6700 (wrong length) or 6Cxx (wrong Le) */
+    private static boolean isWrongLength(int sw) {
+        return sw == 0x6700 || (sw & 0xFF00) == 0x6C00;
+    }
+
+    /**
+     * Sends READ BINARY for ne bytes at offset from the reused command buffer and returns the
+     * status word. The response is left in readResponse.
+     */
+    private int transmitReadBinary(int offset, int ne) throws CardException {
+        readCommand[2] = (byte) (offset >> 8);
+        readCommand[3] = (byte) offset;
+        readCommandBuffer.clear();
+        if (ne <= 256) {
+            // short Le, 0 for 256
+            readCommand[4] = (byte) ne;
+            readCommandBuffer.limit(5);
+        } else {
+            // extended Le, after a zero byte
+            readCommand[4] = 0;
+            readCommand[5] = (byte) (ne >> 8);
+            readCommand[6] = (byte) ne;
+            readCommandBuffer.limit(7);
+        }
+
+        if (readResponse == null) {
+            readResponse = ByteBuffer.allocate(EXTENDED_BLOCK_SIZE + 2);
+        }
+        readResponse.clear();
+        int length = transmit(readCommandBuffer, readResponse);
+        if (length < 2) {
+            throw new CardException("Read binary failed: response without status word");
+        }
+        return ((readResponse.get(length - 2) & 0xFF) << 8) | (readResponse.get(length - 1) & 0xFF);
+    }
+
+    /** Copies the data from the READ BINARY response, at most length bytes */
+    private int readResponseData(byte[] header, byte[] dest, int destOffset, int length) {
+        int read = Math.min(readResponse.position() - 2, length);
+        int headerLength = header == null ? 0 : Math.min(header.length, read);
+        if (headerLength > 0) {
+            System.arraycopy(readResponse.array(), 0, header, 0, headerLength);
+        }
+        System.arraycopy(readResponse.array(), headerLength, dest, destOffset, read - headerLength);
+        return read;
     }
 
     /** Selects the elementary file to read, based on the name passed in. */
@@ -175,151 +817,337 @@ public abstract class EidCard {
         return selectFile(name, 0);
     }
 
+    /**
+     * Selects the elementary file, first selecting the card application if needed. The
+     * SELECT is skipped if the file is already selected, returning the previous response.
+     */
     protected byte[] selectFile(final byte[] name, int ne) throws CardException {
-        ResponseAPDU response = channel.transmit(new CommandAPDU(0x00, 0xA4, 0x08, 0x00, name, ne));
+        if (selectionTracking && fileSelected && ne == selectedNe
+                && Arrays.equals(name, selectedName)) {
+            selectedFile = fileId(name);
+            return selectedResponse;
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (!selectionTracking || !applicationSelected) {
+                    selectApplication();
+                    applicationSelected = true;
+                }
+                return selectFileOnce(name, ne);
+            } catch (CardException e) {
+                retry(e, attempt, String.format("select %s", Utils.bytes2HexString(name)));
+            }
+        }
+    }
+
+    private byte[] selectFileOnce(final byte[] name, int ne) throws CardException {
+        selectedFile = fileId(name);
+        selectedName = name;
+        selectedNe = ne;
+        fileSelected = false;
+        ResponseAPDU response = transmit(new CommandAPDU(0x00, 0xA4, 0x08, 0x00, name, ne));
         if(response.getSW() != 0x9000) {
-            throw new CardException(
+            throw new StatusException(
                     String.format("Select failed: name=%s, status=%s", 
-                            Utils.bytes2HexString(name), Utils.int2HexString(response.getSW())));
+                            Utils.bytes2HexString(name), Utils.int2HexString(response.getSW())),
+                    response.getSW());
         }
-        return response.getData();
+        selectedResponse = response.getData();
+        fileSelected = true;
+        return selectedResponse;
     }
 
     /** Reads the photo data from the card. */
     public Image readEidPhoto() throws CardException {
+        return decodePhoto(readEidPhotoBytes());
+    }
+
+    /**
+     * Reads the photo from the card as stored, in JPEG format.
+     *
+     * Use this to save, send or embed the photo, instead of decoding it with readEidPhoto()
+     * and encoding again, which is slow and degrades the image quality.
+     *
+     * With the cache set, the photo is returned from the cache if the card was read before.
+     * Concurrent calls, and calls made while readAll() is in progress, share the read.
+     */
+    public byte[] readEidPhotoBytes() throws CardException {
+        FutureTask<?> all = joinable(SharedRead.ALL);
+        if (all != null) {
+            return ((EidSnapshot) join(all)).getPhotoBytes();
+        }
+        return (shared(SharedRead.PHOTO, new Callable<byte[]>() {
+            public byte[] call() throws CardException {
+                return readEidPhotoBytesUnshared();
+            }
+        })).clone();
+    }
+
+    private byte[] readEidPhotoBytesUnshared() throws CardException {
         try {
             logger.info("photo exclusive");
-            card.beginExclusive();
-
-            // Read binary into buffer
-            byte[] bytes = readElementaryFile(PHOTO_FILE, true);    
+            beginExclusive();
 
-            try {
-                return ImageIO.read(new ByteArrayInputStream(bytes));
-            } catch (IOException e) {
-                throw new CardException("Photo reading error", e);
+            if (cache != null) {
+                byte[] cached = cache.getPhotoBytes(cacheKey(readFile(DOCUMENT_FILE, false)));
+                if (cached != null) {
+                    return cached;
+                }
             }
+
+            // Read binary into buffer
+            return readFile(PHOTO_FILE, true);
         } finally {
             card.endExclusive();
             logger.info("photo exclusive free");
         }
     }
 
+    /** Decodes JPEG photo bytes as read from the card. */
+    static Image decodePhoto(final byte[] bytes) throws CardException {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new CardException("Photo reading error", e);
+        }
+    }
+
     // tags: 1545 - 1553
-    @SuppressWarnings("serial")
-	static final Map<Integer, Tag> DOCUMENT_TAGMAPPER = new HashMap<Integer, Tag>() {{
-        put(1545, Tag.NULL); // = SRB (issuing authority country code?)
-        put(1546, Tag.DOC_REG_NO);
-        put(1547, Tag.NULL); // = ID
-        put(1548, Tag.NULL); // = ID<docRegNo>
-        put(1549, Tag.ISSUING_DATE);
-        put(1550, Tag.EXPIRY_DATE);
-        put(1551, Tag.ISSUING_AUTHORITY);
-        put(1552, Tag.NULL); // = SC
-        put(1553, Tag.NULL); // = SC    	
-    }};
+    public static final TagMapper DOCUMENT_TAGMAPPER = new TagMapper("DOCUMENT")
+        .register(1545, Tag.NULL) // = SRB (issuing authority country code?)
+        .register(1546, Tag.DOC_REG_NO)
+        .register(1547, Tag.NULL) // = ID
+        .register(1548, Tag.NULL) // = ID<docRegNo>
+        .register(1549, Tag.ISSUING_DATE)
+        .register(1550, Tag.EXPIRY_DATE)
+        .register(1551, Tag.ISSUING_AUTHORITY)
+        .register(1552, Tag.NULL) // = SC
+        .register(1553, Tag.NULL); // = SC
 
     // tags: 1558 - 1567
-    @SuppressWarnings("serial")
-	static final Map<Integer, Tag> PERSONAL_TAGMAPPER = new HashMap<Integer, Tag>() {{
-        put(1558, Tag.PERSONAL_NUMBER);
-        put(1559, Tag.SURNAME);
-        put(1560, Tag.GIVEN_NAME);
-        put(1561, Tag.PARENT_GIVEN_NAME);
-        put(1562, Tag.SEX);
-        put(1563, Tag.PLACE_OF_BIRTH);
-        put(1564, Tag.COMMUNITY_OF_BIRTH);
-        put(1565, Tag.STATE_OF_BIRTH);
-        put(1566, Tag.DATE_OF_BIRTH);
-        put(1567, Tag.NULL); // = SRB (state of birth country code?)
-    }};
+    public static final TagMapper PERSONAL_TAGMAPPER = new TagMapper("PERSONAL")
+        .register(1558, Tag.PERSONAL_NUMBER)
+        .register(1559, Tag.SURNAME)
+        .register(1560, Tag.GIVEN_NAME)
+        .register(1561, Tag.PARENT_GIVEN_NAME)
+        .register(1562, Tag.SEX)
+        .register(1563, Tag.PLACE_OF_BIRTH)
+        .register(1564, Tag.COMMUNITY_OF_BIRTH)
+        .register(1565, Tag.STATE_OF_BIRTH)
+        .register(1566, Tag.DATE_OF_BIRTH)
+        .register(1567, Tag.NULL); // = SRB (state of birth country code?)
 
     // tags: 1568 .. 1578
-    @SuppressWarnings("serial")
-	static final Map<Integer, Tag> RESIDENCE_TAGMAPPER = new HashMap<Integer, Tag>() {{
-        put(1568, Tag.STATE);
-        put(1569, Tag.COMMUNITY);
-        put(1570, Tag.PLACE);
-        put(1571, Tag.STREET);
-        put(1572, Tag.HOUSE_NUMBER);
-        put(1573, Tag.HOUSE_LETTER);
-        put(1574, Tag.ENTRANCE);
-        put(1575, Tag.FLOOR);
-        put(1578, Tag.APPARTMENT_NUMBER);
-        put(1580, Tag.ADDRESS_DATE); // = default 01010001
+    public static final TagMapper RESIDENCE_TAGMAPPER = new TagMapper("RESIDENCE")
+        .register(1568, Tag.STATE)
+        .register(1569, Tag.COMMUNITY)
+        .register(1570, Tag.PLACE)
+        .register(1571, Tag.STREET)
+        .register(1572, Tag.HOUSE_NUMBER)
+        .register(1573, Tag.HOUSE_LETTER)
+        .register(1574, Tag.ENTRANCE)
+        .register(1575, Tag.FLOOR)
+        .register(1578, Tag.APPARTMENT_NUMBER)
+        .register(1580, Tag.ADDRESS_DATE); // = default 01010001
         // AddressLabel ?
-    }};
+
+    /** Data files holding EidInfo tags, in the order they are read */
+    private static final byte[][] DATA_FILES = {DOCUMENT_FILE, PERSONAL_FILE, RESIDENCE_FILE};
+
+    /** Tag mappers for the data files, same order as DATA_FILES */
+    private static final TagMapper[] DATA_TAGMAPPERS = {
+        DOCUMENT_TAGMAPPER, PERSONAL_TAGMAPPER, RESIDENCE_TAGMAPPER
+    };
+
+    /** Number of data files holding EidInfo tags */
+    static final int DATA_FILE_COUNT = DATA_FILES.length;
+
+    /**
+     * Returns the index of the data file holding the tag, as found by the tag mappers.
+     *
+     * @throws IllegalArgumentException if the tag is not stored on the card
+     */
+    static int dataFileOf(Tag tag) {
+        if (tag != Tag.NULL) {
+            for (int i = 0; i < DATA_FILE_COUNT; i++) {
+                if (DATA_TAGMAPPERS[i].contains(tag)) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException(
+                String.format("Tag %s is not stored on the card", tag.name()));
+    }
 
     /**
-     * Add all raw tags to EidInfo builder.
+     * Add all tags from the TLV encoded file to EidInfo builder.
+     *
+     * Walks the file in place with TlvReader, unknown tags are counted by the tag mapper.
      *
      * @param builder EidInfo builder
-     * @param rawTagMap Parsed map of raw byte strings by TLV code
-     * @param tagMapper Map translating Tag codes into EidInfo tags; use {@code Tag.NULL} 
-     *     if tag should be silently ignored
-     * @return Raw map of unknown tags
+     * @param file TLV encoded file as read from the card
+     * @param tagMapper Mapper translating Tag codes into EidInfo tags
+     * @throws IllegalArgumentException if the file is truncated
      */
-    protected Map<Integer, byte[]> addAllToBuilder(
+    protected static void addAllToBuilder(
             EidInfo.Builder builder,
-            final Map<Integer, byte[]> rawTagMap,
-            final Map<Integer, Tag> tagMapper) {
+            final byte[] file,
+            final TagMapper tagMapper) {
 
-        Map<Integer, byte[]> unknownTags = new HashMap<Integer, byte[]>();
-
-        for (Map.Entry<Integer, byte[]> entry : rawTagMap.entrySet()) {
-            if (tagMapper.containsKey(entry.getKey())) {
+        TlvReader tlv = new TlvReader(file);
+        while (tlv.next()) {
+            Tag tag = tagMapper.get(tlv.tag());
+            if (tag != null) {
                 // tag is known, ignore if null or decode and add value to the builder
-                Tag tag = tagMapper.get(entry.getKey());
-                if (tag == Tag.NULL) {
-                    continue;
+                if (tag != Tag.NULL) {
+                    builder.addValue(tag, tlv.valueAsString());
                 }
+            } else if (tlv.valueLength() > 0) {
+                // tag is unknown, count it so all users can report bugs easily
+                tagMapper.recordUnknown(
+                        tlv.tag(), tlv.buffer(), tlv.valueOffset(), tlv.valueLength());
+            }
+        }
+    }
 
-                String value = Utils.bytes2UTF8String(entry.getValue());
-                builder.addValue(tag, value);
+    /**
+     * Reads document, personal and residence data in a single exclusive session.
+     *
+     * Concurrent calls, and calls made while readAll() is in progress, share the read instead
+     * of reading the card again.
+     */
+    public EidInfo readEidInfo() throws CardException {
+        FutureTask<?> all = joinable(SharedRead.ALL);
+        if (all != null) {
+            return ((EidSnapshot) join(all)).getInfo();
+        }
+        return shared(SharedRead.INFO, new Callable<EidInfo>() {
+            public EidInfo call() throws CardException {
+                return readEidInfoUnshared();
+            }
+        });
+    }
 
-            } else if (entry.getValue().length > 0) {
-                // tag is unknown, copy for return
-                unknownTags.put(entry.getKey(), entry.getValue());
+    private EidInfo readEidInfoUnshared() throws CardException {
+        try {
+            logger.info("exclusive");
+            beginExclusive();
+
+            // the residence file is read first, as it validates the cached card
+            byte[] document = readFile(DOCUMENT_FILE, false);
+            byte[] residence = readFile(RESIDENCE_FILE, false);
+            EidCache.Key key = cacheKey(document);
+            if (key != null) {
+                EidSnapshot cached = cache.get(key, residence);
+                if (cached != null) {
+                    return cached.getInfo();
+                }
             }
+
+            return parseEidInfo(document, readFile(PERSONAL_FILE, false), residence);
+
+        } finally {
+            card.endExclusive();
+            logger.info("exclusive free");
+        }
+    }
+
+    /**
+     * Reads only the data files holding the requested tags.
+     *
+     * Use this when only a few fields are needed, for example the personal number, as each
+     * data file takes several APDUs to read. The returned EidInfo may also hold other tags
+     * found in the same files, all other tags are null. The cache is not used.
+     *
+     * @param tags Tags to read
+     * @throws IllegalArgumentException if a tag is not stored on the card
+     */
+    public EidInfo readEidInfo(Tag... tags) throws CardException {
+        boolean[] files = new boolean[DATA_FILE_COUNT];
+        for (Tag tag : tags) {
+            files[dataFileOf(tag)] = true;
         }
+        return readDataFiles(files);
+    }
 
-        return unknownTags;
+    /**
+     * Returns EidInfo that reads the data files from the card on first access to their tags.
+     *
+     * The card must stay inserted until all needed tags are read.
+     */
+    public LazyEidInfo readEidInfoLazily() {
+        return new LazyEidInfo(this);
     }
 
-    public EidInfo readEidInfo() throws CardException {
+    /** Reads the selected data files, indexed as DATA_FILES, in a single exclusive session. */
+    EidInfo readDataFiles(boolean[] files) throws CardException {
         try {
             logger.info("exclusive");
-            card.beginExclusive();
-            channel = card.getBasicChannel();
-
-            Map<Integer, byte[]> document = parseTlv(readElementaryFile(DOCUMENT_FILE, false));
-            Map<Integer, byte[]> personal = parseTlv(readElementaryFile(PERSONAL_FILE, false));
-            Map<Integer, byte[]> residence = parseTlv(readElementaryFile(RESIDENCE_FILE, false));
+            beginExclusive();
 
             EidInfo.Builder builder = new EidInfo.Builder();
-            document = addAllToBuilder(builder, document, DOCUMENT_TAGMAPPER);
-            personal = addAllToBuilder(builder, personal, PERSONAL_TAGMAPPER);
-            residence = addAllToBuilder(builder, residence, RESIDENCE_TAGMAPPER);
-
-            // log all unknown tags so all users can report bugs easily
-            StringBuilder unknownString = new StringBuilder();
-            if (!document.isEmpty()) {
-                unknownString.append("DOCUMENT:\n" + Utils.map2UTF8String(document));
-            }
-            if (!personal.isEmpty()) {
-                unknownString.append("PERSONAL:\n" + Utils.map2UTF8String(personal));
+            for (int i = 0; i < DATA_FILE_COUNT; i++) {
+                if (files[i]) {
+                    byte[] file = readFile(DATA_FILES[i], false);
+                    try {
+                        addAllToBuilder(builder, file, DATA_TAGMAPPERS[i]);
+                    } catch (IllegalArgumentException e) {
+                        throw new CardException("Malformed data file", e);
+                    }
+                }
             }
-            if (!residence.isEmpty()) {
-                unknownString.append("RESIDENCE:\n" + Utils.map2UTF8String(residence));
+            return builder.build();
+
+        } finally {
+            card.endExclusive();
+            logger.info("exclusive free");
+        }
+    }
+
+    /**
+     * Reads document, personal and residence data and the photo in a single exclusive session.
+     *
+     * This is faster than calling readEidInfo() and readEidPhoto() one after another, and no
+     * other process can access the card in between. With the cache set, the snapshot is
+     * stored in the cache, this is the only read filling the cache. Concurrent calls share
+     * the read.
+     *
+     * @return Snapshot with parsed EidInfo, raw photo bytes and raw data files
+     */
+    public EidSnapshot readAll() throws CardException {
+        return shared(SharedRead.ALL, new Callable<EidSnapshot>() {
+            public EidSnapshot call() throws CardException {
+                return readAllUnshared();
             }
-            if (unknownString.length() > 0) {
-                logger.error(
-                        "Some unknown tags found on a card. Please send this info to " +
-                                "<grakic@devbase.net> and contribute to the development.\n" +
-                                unknownString.toString());
+        });
+    }
+
+    private EidSnapshot readAllUnshared() throws CardException {
+        try {
+            logger.info("exclusive");
+            beginExclusive();
+
+            // the residence file is read first, as it validates the cached card
+            byte[] document = readFile(DOCUMENT_FILE, false);
+            byte[] residence = readFile(RESIDENCE_FILE, false);
+            EidCache.Key key = cacheKey(document);
+            if (key != null) {
+                EidSnapshot cached = cache.get(key, residence);
+                if (cached != null) {
+                    return cached;
+                }
             }
 
-            return builder.build();
+            byte[] personal = readFile(PERSONAL_FILE, false);
+            byte[] photo = readFile(PHOTO_FILE, true);
+
+            EidSnapshot snapshot = new EidSnapshot(
+                    parseEidInfo(document, personal, residence),
+                    photo, document, personal, residence);
+            if (key != null) {
+                cache.put(key, snapshot);
+            }
+            return snapshot;
 
         } finally {
             card.endExclusive();
@@ -327,6 +1155,191 @@ public abstract class EidCard {
         }
     }
 
+    /** Returns the read in progress, or null */
+    private FutureTask<?> joinable(SharedRead read) {
+        synchronized (inFlight) {
+            return inFlight.get(read);
+        }
+    }
+
+    /**
+     * Runs the read, or joins the same read already in progress in another thread.
+     *
+     * Results are shared between the callers, so they must be immutable or copied.
+     */
+    @SuppressWarnings("unchecked") // each read always has the same result type
+    private <V> V shared(SharedRead read, Callable<V> task) throws CardException {
+        FutureTask<V> future;
+        boolean owner = false;
+        synchronized (inFlight) {
+            future = (FutureTask<V>) inFlight.get(read);
+            if (future == null) {
+                future = new FutureTask<V>(task);
+                inFlight.put(read, future);
+                owner = true;
+            }
+        }
+        if (owner) {
+            try {
+                future.run();
+            } finally {
+                synchronized (inFlight) {
+                    inFlight.remove(read);
+                }
+            }
+        } else {
+            logger.info(String.format("Joining %s read in progress", read));
+        }
+        return join(future);
+    }
+
+    private static <V> V join(FutureTask<V> future) throws CardException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CardException("Interrupted while waiting for the card read", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CardException) {
+                throw (CardException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CardException(cause);
+        }
+    }
+
+    /**
+     * Reads document, personal and residence data asynchronously.
+     *
+     * Asynchronous reads of the card are queued and run one at a time, in order, so they can
+     * be started from any number of threads. Do not call the blocking read methods from
+     * other threads while asynchronous reads are running.
+     */
+    public EidFuture<EidInfo> readEidInfoAsync() {
+        return submit(new Callable<EidInfo>() {
+            public EidInfo call() throws CardException {
+                return readEidInfo();
+            }
+        });
+    }
+
+    /** Reads the photo asynchronously, see readEidInfoAsync(). */
+    public EidFuture<Image> readEidPhotoAsync() {
+        return submit(new Callable<Image>() {
+            public Image call() throws CardException {
+                return readEidPhoto();
+            }
+        });
+    }
+
+    /** Reads the photo asynchronously as stored, in JPEG format, see readEidInfoAsync(). */
+    public EidFuture<byte[]> readEidPhotoBytesAsync() {
+        return submit(new Callable<byte[]>() {
+            public byte[] call() throws CardException {
+                return readEidPhotoBytes();
+            }
+        });
+    }
+
+    /** Reads data and photo asynchronously in a single exclusive session, see readAll(). */
+    public EidFuture<EidSnapshot> readAllAsync() {
+        return submit(new Callable<EidSnapshot>() {
+            public EidSnapshot call() throws CardException {
+                return readAll();
+            }
+        });
+    }
+
+    /**
+     * Queues any read of the card, to run after the asynchronous reads already queued.
+     *
+     * @param read Read using this card
+     */
+    public <V> EidFuture<V> submit(Callable<V> read) {
+        EidFuture<V> future = new EidFuture<V>(read);
+        asyncQueue().execute(future);
+        return future;
+    }
+
+    /**
+     * Sets the threads to run the asynchronous reads of this card. By default the reads run
+     * on a pool of daemon threads shared by all cards. Set before the first asynchronous read.
+     */
+    public synchronized void setAsyncExecutor(Executor executor) {
+        if (asyncQueue != null) {
+            throw new IllegalStateException("Asynchronous reads already started");
+        }
+        asyncQueue = new SerialExecutor(executor);
+    }
+
+    private synchronized SerialExecutor asyncQueue() {
+        if (asyncQueue == null) {
+            asyncQueue = new SerialExecutor(asyncPool());
+        }
+        return asyncQueue;
+    }
+
+    private static synchronized ExecutorService asyncPool() {
+        if (asyncPool == null) {
+            final AtomicInteger count = new AtomicInteger();
+            asyncPool = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(
+                            runnable, "jfreesteel-card-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return asyncPool;
+    }
+
+    /**
+     * Returns the card identity used as the cache key, or null if the cache is not set.
+     *
+     * @param document Document file, already read from the card
+     */
+    private EidCache.Key cacheKey(byte[] document) throws CardException {
+        if (cache == null) {
+            return null;
+        }
+
+        String documentNumber = "";
+        try {
+            TlvReader tlv = new TlvReader(document);
+            while (tlv.next()) {
+                if (DOCUMENT_TAGMAPPER.get(tlv.tag()) == Tag.DOC_REG_NO) {
+                    documentNumber = tlv.valueAsString();
+                    break;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new CardException("Malformed data file", e);
+        }
+
+        return new EidCache.Key(card.getATR().getBytes(), documentNumber);
+    }
+
+    /** Parses raw data files into EidInfo, unknown tags are counted by the tag mappers. */
+    static EidInfo parseEidInfo(byte[] documentFile, byte[] personalFile, byte[] residenceFile)
+            throws CardException {
+
+        EidInfo.Builder builder = new EidInfo.Builder();
+        try {
+            addAllToBuilder(builder, documentFile, DOCUMENT_TAGMAPPER);
+            addAllToBuilder(builder, personalFile, PERSONAL_TAGMAPPER);
+            addAllToBuilder(builder, residenceFile, RESIDENCE_TAGMAPPER);
+        } catch (IllegalArgumentException e) {
+            throw new CardException("Malformed data file", e);
+        }
+
+        return builder.build();
+    }
+
     /** Returns a debug string consisting of per-file debug info. */
     public String debugEidInfo() throws CardException {
         EidInfo info = readEidInfo();
@@ -339,6 +1352,7 @@ public abstract class EidCard {
     }
 
     public void disconnect(boolean reset) throws CardException {
+        invalidateSelection();
         card.disconnect(reset);
         card = null;
     }
@@ -1,8 +1,5 @@
 package net.devbase.jfreesteel;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
-
 import javax.smartcardio.Card;
 import javax.smartcardio.CardException;
 
@@ -30,13 +27,10 @@ public class EidCardApollo extends EidCard {
         (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xDF
     };
 
-    /** Factory "selection" method */
-    protected static boolean isKnownAtr(byte[] atrBytes) {
-        return Arrays.equals(atrBytes, CARD_ATR);
-    }
-
     protected EidCardApollo(Card card) {
         super(card);
+
+        setReadPlan(ReadPlan.APOLLO);
     }
 
     /** Intermediate CA gradjani public X.509 certificate */
@@ -48,31 +42,57 @@ public class EidCardApollo extends EidCard {
     /** Public X.509 certificate for authentication */
     protected static final byte[] AUTH_CERT_FILE    = {0x0F, 0x08};
 
-    protected byte[] readElementaryFile(final byte[] name, boolean strip_tag) throws CardException {
+    /** File header, reused for every file */
+    private final byte[] header = new byte[6];
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+    /** First block of the file, reused for every file */
+    private final byte[] head = new byte[BLOCK_SIZE];
 
+    protected byte[] readElementaryFile(final byte[] name, boolean strip_tag) throws CardException {
+
+        ReadPlan plan = getReadPlan();
         selectFile(name);
 
-        // Read header bytes from the EF
-        byte[] header = readBinary(0, 6);
+        // Read the header together with the data of a typical file, in a single short block
+        int first = plan.firstReadLength(name, BLOCK_SIZE);
+        int read;
+        boolean missed = false;
+        try {
+            read = readBinary(0, head, 0, first);
+        } catch (CardException e) {
+            if (first <= header.length || !isPastEndOfFile(e)) {
+                throw e;
+            }
+            // data returned with 6282 is kept, the rest is read after the header
+            read = readBeforeError(e);
+            logger.info(String.format("Read of %d bytes rejected, %d bytes returned: %s",
+                    first, read, e.getMessage()));
+            missed = true;
+        }
+        if (read < header.length) {
+            readBinaryFully(read, head, read, header.length - read);
+            read = header.length;
+        }
+        System.arraycopy(head, 0, header, 0, header.length);
 
         // Empty files are filled with 0xFF
         if (Utils.allEquals(0xFF, header))
-            return out.toByteArray();
-
-        // Total EF length: data as 16bit LE at 4B offset
-        int length = ((0xFF&header[5])<<8) + (0xFF&header[4]);        
-        int offset = 6;
-        if (strip_tag) { length -= 4; offset += 4; }
-
-        // Read binary into buffer        
-        while (length > 0) {
-            byte[] data = readBinary(offset, length);
-            out.write(data, 0, data.length);
-            offset += data.length;
-            length -= data.length;
+            return new byte[0];
+
+        // Total EF length: data as 16bit LE at 4B offset, plus the header
+        int fileLength = plan.getLayout().fileLength(header);
+        if (missed) {
+            plan.missed(name, fileLength);
+        } else {
+            plan.learn(name, fileLength);
         }
-        return out.toByteArray();
-    }    
+        int offset = strip_tag ? 10 : 6;
+
+        // Copy the data read with the header, read the rest straight into the array
+        byte[] out = new byte[Math.max(fileLength - offset, 0)];
+        int copied = Math.max(Math.min(read, fileLength) - offset, 0);
+        System.arraycopy(head, offset, out, 0, copied);
+        readBinaryFully(offset + copied, out, copied, out.length - copied);
+        return out;
+    }
 }
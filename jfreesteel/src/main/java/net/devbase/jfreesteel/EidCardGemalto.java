@@ -1,6 +1,5 @@
 package net.devbase.jfreesteel;
 
-import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 
 import javax.smartcardio.Card;
@@ -34,12 +33,8 @@ public class EidCardGemalto extends EidCard {
         (byte) 0x82, (byte) 0x90, (byte) 0x00, (byte) 0x79 
     };
 
-    /** Factory "selection" method */
-    protected static boolean isKnownAtr(byte[] atrBytes) {
-        return Arrays.equals(atrBytes, CARD_ATR);
-    }
-
-    static final byte[] LICNA_KARTA_AID = {
+    /** Application id of the eID card application */
+    public static final byte[] LICNA_KARTA_AID = {
         (byte) 0xF3, (byte) 0x81, (byte) 0x00, (byte) 0x00, (byte) 0x02, (byte) 0x53, (byte) 0x45, 
         (byte) 0x52, (byte) 0x49, (byte) 0x44, (byte) 0x01
     };
@@ -47,8 +42,12 @@ public class EidCardGemalto extends EidCard {
     protected EidCardGemalto(Card card) throws CardException {
         super(card);
 
-        // Select aid
-        ResponseAPDU response = channel.transmit(
+        setReadPlan(ReadPlan.GEMALTO);
+    }
+
+    /** Selects the eID application by AID, before the first file is selected */
+    protected void selectApplication() throws CardException {
+        ResponseAPDU response = transmit(
                 new CommandAPDU(0x00, 0xA4, 0x04, 0x00, LICNA_KARTA_AID));
         if (response.getSW() != 0x9000) {
             throw new CardException(
@@ -57,34 +56,44 @@ public class EidCardGemalto extends EidCard {
         }        
     }
 
-    protected byte[] readElementaryFile(final byte[] name, boolean strip_tag) throws CardException {
+    /** Outer tag, reused for every file */
+    private final byte[] outerTag = new byte[4];
+
+    /** Outer and inner tag, reused for every file */
+    private final byte[] innerTag = new byte[8];
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+    protected byte[] readElementaryFile(final byte[] name, boolean strip_tag) throws CardException {
 
+        ReadPlan plan = getReadPlan();
         byte[] fileinfo = selectFile(name, 4);
 
         // length hint from file info
-        int length = ((0xFF&fileinfo[2])<<8) + (0xFF&fileinfo[3]);
-        int offset = 0;
-        boolean known_real_length = false;
-
-        while (length > 0) {
-            byte[] data = readBinary(offset, length);
-
-            if (!known_real_length) {
-                // get length from outher tag, skip first 4 bytes (outher tag + length)
-                // if strip_tag is true, skip 4 more bytes (inner tag + length) and return content 
-                length = ((0xFF&data[3])<<8) + (0xFF&data[2]);
-                int skip = strip_tag ? 8 : 4;
-                out.write(data, skip, data.length-skip);
-                known_real_length = true;
-            }
-            else out.write(data, 0, data.length);
+        int hint = ((0xFF&fileinfo[2])<<8) + (0xFF&fileinfo[3]);
+        if (hint == 0) {
+            return new byte[0];
+        }
 
-            offset += data.length;
-            length -= data.length;
+        // the real length is not known before the outer tag is read, so the first read
+        // covers the tags and the data of a typical file, within the length hint, reading
+        // the tags into the header and the data straight into the array of the hint length
+        // if strip_tag is true, skip 4 more bytes (inner tag + length) and return content
+        byte[] header = strip_tag ? innerTag : outerTag;
+        byte[] out = new byte[Math.max(hint - header.length, 0)];
+        int read = readBinary(0, header, out, 0, plan.firstReadLength(name, hint));
+        if (read < header.length) {
+            // first read shorter than the tags, for files not in the plan
+            readBinaryFully(read, header, read, header.length - read);
+            read = header.length;
         }
 
-        return out.toByteArray();
-    }   
+        // get length from outher tag, the rest of the file is read after the first block
+        int length = plan.getLayout().fileLength(header);
+        plan.learn(name, length);
+        int total = Math.max(length, read) - header.length;
+        if (out.length != total) {
+            out = Arrays.copyOf(out, total);
+        }
+        readBinaryFully(read, out, read - header.length, length - read);
+        return out;
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+/**
+ * Instrumentation hook receiving every APDU exchange and file read of an EidCard.
+ *
+ * Methods are called on the thread reading the card, right after the exchange, so they
+ * should be fast and must be thread safe when shared between cards. Arguments are
+ * primitives and constant strings, so the calls do not allocate.
+ *
+ * Set the instrumentation for all new cards with EidCard.setDefaultInstrumentation(), or
+ * for a single card with EidCard.setInstrumentation(). EidCardMetrics is the built-in
+ * in-memory implementation, exportable via JMX.
+ */
+public interface EidCardInstrumentation {
+
+    /** File id when no file is selected, or the application is selected */
+    int NO_FILE = -1;
+
+    /** Status word reported when the transmission failed with CardException */
+    int TRANSMIT_FAILED = -1;
+
+    /** Instrumentation doing nothing, the default */
+    EidCardInstrumentation NOOP = new EidCardInstrumentation() {
+        public void apdu(String cardType, int ins, int file, int sw, int bytesOut, int bytesIn,
+                long nanos) {
+        }
+
+        public void fileRead(String cardType, int file, int apdus, int bytes, long nanos) {
+        }
+    };
+
+    /**
+     * APDU exchange with the card.
+     *
+     * @param cardType Card implementation, e.g. "EidCardApollo"
+     * @param ins Command instruction byte, e.g. 0xB0 for READ BINARY
+     * @param file Selected file id, e.g. 0x0F02, or NO_FILE
+     * @param sw Response status word, or TRANSMIT_FAILED
+     * @param bytesOut Command header and data bytes sent to the card
+     * @param bytesIn Response data and status bytes received from the card
+     * @param nanos Time spent in the exchange
+     */
+    void apdu(String cardType, int ins, int file, int sw, int bytesOut, int bytesIn, long nanos);
+
+    /**
+     * Elementary file read completely, reported after all its APDU exchanges.
+     *
+     * @param cardType Card implementation, e.g. "EidCardApollo"
+     * @param file File id, e.g. 0x0F06
+     * @param apdus Number of APDU exchanges, including the file selection
+     * @param bytes Bytes sent and received in all exchanges
+     * @param nanos Time spent reading the file
+     */
+    void fileRead(String cardType, int file, int apdus, int bytes, long nanos);
+}
@@ -0,0 +1,311 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * In-memory EidCardInstrumentation, collecting counters and latency histograms.
+ *
+ * APDU exchanges are grouped by the card type and command, file reads by the card type
+ * and file, so slow readers, card generations and files can be told apart. Histograms
+ * use power of two microsecond buckets, percentiles are reported as the bucket upper bound.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * EidCardMetrics metrics = new EidCardMetrics();
+ * metrics.register("default");
+ * EidCard.setDefaultInstrumentation(metrics);
+ * }
+ * </pre>
+ */
+public class EidCardMetrics implements EidCardInstrumentation, EidCardMetricsMXBean {
+
+    /** Latency histogram summary, in microseconds */
+    public static class Latency {
+        private final long count;
+        private final double meanMicros;
+        private final long maxMicros;
+        private final long p50Micros;
+        private final long p90Micros;
+        private final long p99Micros;
+
+        @ConstructorProperties({"count", "meanMicros", "maxMicros",
+            "p50Micros", "p90Micros", "p99Micros"})
+        public Latency(long count, double meanMicros, long maxMicros,
+                long p50Micros, long p90Micros, long p99Micros) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.maxMicros = maxMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP90Micros() {
+            return p90Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.1fus, p50=%dus, p90=%dus, p99=%dus, max=%dus",
+                    count, meanMicros, p50Micros, p90Micros, p99Micros, maxMicros);
+        }
+    }
+
+    /** Lock-free histogram with power of two microsecond buckets */
+    static class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong values = new AtomicLong();
+
+        void record(long nanos, long value) {
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            values.addAndGet(value);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+        }
+
+        double meanValue() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) values.get() / n;
+        }
+
+        Latency snapshot() {
+            long n = count.get();
+            return new Latency(n, n == 0 ? 0 : totalNanos.get() / 1000.0 / n,
+                    maxNanos.get() / 1000, percentile(n, 0.5), percentile(n, 0.9),
+                    percentile(n, 0.99));
+        }
+
+        private long percentile(long n, double quantile) {
+            long rank = (long) Math.ceil(n * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : 1L << i;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private final AtomicLong apdus = new AtomicLong();
+    private final AtomicLong failedApdus = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong fileReads = new AtomicLong();
+
+    private final ConcurrentMap<String, AtomicLong> statusWords =
+            new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, Histogram> apduLatency =
+            new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentMap<String, Histogram> fileLatency =
+            new ConcurrentHashMap<String, Histogram>();
+
+    private ObjectName objectName;
+
+    public void apdu(String cardType, int ins, int file, int sw, int bytesOut, int bytesIn,
+            long nanos) {
+        apdus.incrementAndGet();
+        bytesSent.addAndGet(bytesOut);
+        bytesReceived.addAndGet(bytesIn);
+
+        String status;
+        if (sw == TRANSMIT_FAILED) {
+            failedApdus.incrementAndGet();
+            status = "FAILED";
+        } else {
+            status = String.format("%04X", sw);
+        }
+        counter(statusWords, cardType + " " + status).incrementAndGet();
+        histogram(apduLatency, cardType + " " + command(ins)).record(nanos, 1);
+    }
+
+    public void fileRead(String cardType, int file, int apdus, int bytes, long nanos) {
+        fileReads.incrementAndGet();
+        histogram(fileLatency, cardType + " " + String.format("%04X", file)).record(nanos, apdus);
+    }
+
+    private static String command(int ins) {
+        switch (ins) {
+            case 0xA4:
+                return "SELECT";
+            case 0xB0:
+                return "READ BINARY";
+            default:
+                return String.format("INS %02X", ins);
+        }
+    }
+
+    private static AtomicLong counter(ConcurrentMap<String, AtomicLong> map, String key) {
+        AtomicLong counter = map.get(key);
+        if (counter == null) {
+            AtomicLong previous = map.putIfAbsent(key, counter = new AtomicLong());
+            if (previous != null) {
+                counter = previous;
+            }
+        }
+        return counter;
+    }
+
+    private static Histogram histogram(ConcurrentMap<String, Histogram> map, String key) {
+        Histogram histogram = map.get(key);
+        if (histogram == null) {
+            Histogram previous = map.putIfAbsent(key, histogram = new Histogram());
+            if (previous != null) {
+                histogram = previous;
+            }
+        }
+        return histogram;
+    }
+
+    public long getApduCount() {
+        return apdus.get();
+    }
+
+    public long getFailedApduCount() {
+        return failedApdus.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getFileReadCount() {
+        return fileReads.get();
+    }
+
+    public Map<String, Long> getStatusWords() {
+        SortedMap<String, Long> out = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : statusWords.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().get());
+        }
+        return out;
+    }
+
+    public Map<String, Latency> getApduLatency() {
+        return snapshot(apduLatency);
+    }
+
+    public Map<String, Latency> getFileReadLatency() {
+        return snapshot(fileLatency);
+    }
+
+    public Map<String, Double> getFileReadApdus() {
+        SortedMap<String, Double> out = new TreeMap<String, Double>();
+        for (Map.Entry<String, Histogram> entry : fileLatency.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().meanValue());
+        }
+        return out;
+    }
+
+    private static Map<String, Latency> snapshot(Map<String, Histogram> histograms) {
+        SortedMap<String, Latency> out = new TreeMap<String, Latency>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return out;
+    }
+
+    public void reset() {
+        apdus.set(0);
+        failedApdus.set(0);
+        bytesSent.set(0);
+        bytesReceived.set(0);
+        fileReads.set(0);
+        statusWords.clear();
+        apduLatency.clear();
+        fileLatency.clear();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, as
+     * "net.devbase.jfreesteel:type=EidCardMetrics,name=[name]".
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("Already registered as " + objectName);
+        }
+        ObjectName object = new ObjectName(String.format(
+                "net.devbase.jfreesteel:type=EidCardMetrics,name=%s", ObjectName.quote(name)));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, object);
+        objectName = object;
+        return object;
+    }
+
+    /** Unregisters the metrics from the platform MBean server, if registered. */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+}
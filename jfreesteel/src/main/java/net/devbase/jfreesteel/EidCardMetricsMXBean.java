@@ -0,0 +1,56 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Map;
+
+import net.devbase.jfreesteel.EidCardMetrics.Latency;
+
+/**
+ * JMX interface of EidCardMetrics.
+ *
+ * Keys of the maps start with the card implementation, e.g. "EidCardApollo READ BINARY",
+ * "EidCardApollo 0F06" or "EidCardGemalto 9000".
+ */
+public interface EidCardMetricsMXBean {
+
+    long getApduCount();
+
+    long getFailedApduCount();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    long getFileReadCount();
+
+    /** Response status word counts, failed transmissions are counted as "FAILED" */
+    Map<String, Long> getStatusWords();
+
+    /** APDU exchange latency per card type and command */
+    Map<String, Latency> getApduLatency();
+
+    /** Complete file read latency per card type and file */
+    Map<String, Latency> getFileReadLatency();
+
+    /** Average APDU exchanges per file read, per card type and file */
+    Map<String, Double> getFileReadApdus();
+
+    void reset();
+}
@@ -0,0 +1,86 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.List;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+
+/**
+ * Card profile, recognizing a batch of eID cards by the ATR and creating the EidCard for it.
+ *
+ * Profiles for the card batches not known to the library, e.g. new chip vendors or foreign
+ * residence permits using one of the eID file layouts, are loaded with ServiceLoader: list
+ * the profile class in META-INF/services/net.devbase.jfreesteel.EidCardProfile on the class
+ * path. Profile classes need a public constructor without arguments.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public abstract class EidCardProfile {
+
+    /** Returns the profile name, for the logs */
+    public abstract String getName();
+
+    /** Returns the patterns matching the ATRs of the cards */
+    public abstract List<AtrPattern> getAtrPatterns();
+
+    /**
+     * Returns the read plan of the cards, or null to use the plan of their file layout,
+     * ReadPlan.APOLLO or ReadPlan.GEMALTO. Override together with createCard(), passing the
+     * plan to createApollo() or createGemalto().
+     */
+    public ReadPlan getReadPlan() {
+        return null;
+    }
+
+    /** Creates the EidCard for the card with the ATR matching the profile */
+    public abstract EidCard createCard(Card card) throws CardException;
+
+    /**
+     * Creates the EidCard for a card with the Apollo file layout.
+     *
+     * @param plan Read plan, or null to use ReadPlan.APOLLO
+     */
+    protected static EidCard createApollo(Card card, ReadPlan plan) {
+        EidCard eidcard = new EidCardApollo(card);
+        if (plan != null) {
+            eidcard.setReadPlan(plan);
+        }
+        return eidcard;
+    }
+
+    /**
+     * Creates the EidCard for a card with the Gemalto file layout. The eID application is
+     * selected before the first read.
+     *
+     * @param plan Read plan, or null to use ReadPlan.GEMALTO
+     */
+    protected static EidCard createGemalto(Card card, ReadPlan plan) throws CardException {
+        EidCard eidcard = new EidCardGemalto(card);
+        if (plan != null) {
+            eidcard.setReadPlan(plan);
+        }
+        return eidcard;
+    }
+
+    @Override
+    public String toString() {
+        return "EidCardProfile[" + getName() + "]";
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the card profiles, resolving the profile of a card from its ATR.
+ *
+ * The default registry holds the Apollo and Gemalto profiles and the profiles loaded with
+ * ServiceLoader, see EidCardProfile. The ATR patterns are compiled into a trie, so an ATR is
+ * resolved in a single pass over its bytes, and a card that is not an eID card is rejected
+ * just as fast. When several patterns match, the more specific pattern wins at the first byte
+ * where they differ, whole ATR patterns win over the historical bytes prefixes, and a longer
+ * prefix wins over a shorter one. A profile registered later replaces the profile registered
+ * with the same pattern.
+ *
+ * The registry is thread safe.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public final class EidCardProfiles {
+
+    private final static Logger logger = LoggerFactory.getLogger(EidCardProfiles.class);
+
+    /** Apollo 2008 cards */
+    public static final EidCardProfile APOLLO = new EidCardProfile() {
+        @Override
+        public String getName() {
+            return "Apollo";
+        }
+
+        @Override
+        public List<AtrPattern> getAtrPatterns() {
+            return Collections.singletonList(AtrPattern.exact(EidCardApollo.CARD_ATR));
+        }
+
+        @Override
+        public ReadPlan getReadPlan() {
+            return ReadPlan.APOLLO;
+        }
+
+        @Override
+        public EidCard createCard(Card card) {
+            return createApollo(card, getReadPlan());
+        }
+    };
+
+    /** Gemalto MultiApp ID cards, issued after Aug 18 2014 */
+    public static final EidCardProfile GEMALTO = new EidCardProfile() {
+        @Override
+        public String getName() {
+            return "Gemalto";
+        }
+
+        @Override
+        public List<AtrPattern> getAtrPatterns() {
+            return Collections.singletonList(AtrPattern.exact(EidCardGemalto.CARD_ATR));
+        }
+
+        @Override
+        public ReadPlan getReadPlan() {
+            return ReadPlan.GEMALTO;
+        }
+
+        @Override
+        public EidCard createCard(Card card) throws CardException {
+            return createGemalto(card, getReadPlan());
+        }
+    };
+
+    private static EidCardProfiles defaultProfiles = null;
+
+    /** Trie node, with the profile of the patterns ending at the node */
+    private static final class Node {
+        /** Children by the byte value, for the bytes matched exactly */
+        final Map<Integer, Node> children = new HashMap<Integer, Node>();
+        /** Children for the bytes matched with a mask, in the registration order */
+        final List<MaskedEdge> masked = new ArrayList<MaskedEdge>();
+        EidCardProfile profile = null;
+
+        boolean isEmpty() {
+            return profile == null && children.isEmpty() && masked.isEmpty();
+        }
+    }
+
+    private static final class MaskedEdge {
+        final int mask;
+        final int value;
+        final Node node = new Node();
+
+        MaskedEdge(int mask, int value) {
+            this.mask = mask;
+            this.value = value;
+        }
+    }
+
+    /** Profiles in the registration order, guarded by this */
+    private final List<EidCardProfile> profiles = new ArrayList<EidCardProfile>();
+
+    /** Tries of the registered patterns, rebuilt when a profile is registered */
+    private volatile Node atrTrie = new Node();
+    private volatile Node historicalTrie = new Node();
+
+    /** Creates an empty registry, use getDefault() for the registry used by EidCard.fromCard() */
+    public EidCardProfiles() {
+    }
+
+    /** Returns the registry used by EidCard.fromCard(), loading the profiles on first use */
+    public static synchronized EidCardProfiles getDefault() {
+        if (defaultProfiles == null) {
+            defaultProfiles = load();
+        }
+        return defaultProfiles;
+    }
+
+    private static EidCardProfiles load() {
+        EidCardProfiles registry = new EidCardProfiles();
+        registry.register(APOLLO);
+        registry.register(GEMALTO);
+
+        Iterator<EidCardProfile> loader = ServiceLoader.load(EidCardProfile.class).iterator();
+        while (true) {
+            try {
+                if (!loader.hasNext()) {
+                    break;
+                }
+                EidCardProfile profile = loader.next();
+                registry.register(profile);
+                logger.info(String.format("Loaded card profile %s", profile.getName()));
+            } catch (ServiceConfigurationError e) {
+                logger.error("Loading card profile failed", e);
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Registers the profile.
+     *
+     * @throws IllegalArgumentException if the profile has no ATR patterns
+     */
+    public synchronized void register(EidCardProfile profile) {
+        if (profile.getAtrPatterns() == null || profile.getAtrPatterns().isEmpty()) {
+            throw new IllegalArgumentException(
+                    String.format("Profile %s has no ATR patterns", profile.getName()));
+        }
+        profiles.add(profile);
+
+        Node atrs = new Node();
+        Node historical = new Node();
+        for (EidCardProfile registered : profiles) {
+            for (AtrPattern pattern : registered.getAtrPatterns()) {
+                insert(pattern.isHistoricalPrefix() ? historical : atrs, pattern, registered);
+            }
+        }
+        atrTrie = atrs;
+        historicalTrie = historical;
+    }
+
+    /** Returns the registered profiles, in the registration order */
+    public synchronized List<EidCardProfile> getProfiles() {
+        return new ArrayList<EidCardProfile>(profiles);
+    }
+
+    /** Returns the profile of the card with the ATR, or null if the card is not known */
+    public EidCardProfile resolve(byte[] atr) {
+        EidCardProfile profile = find(atrTrie, atr, 0);
+        if (profile != null) {
+            return profile;
+        }
+
+        Node node = historicalTrie;
+        if (node.isEmpty()) {
+            return null;
+        }
+        profile = node.profile;
+        for (byte b : new ATR(atr).getHistoricalBytes()) {
+            node = node.children.get(b & 0xFF);
+            if (node == null) {
+                break;
+            }
+            if (node.profile != null) {
+                profile = node.profile;
+            }
+        }
+        return profile;
+    }
+
+    private static void insert(Node root, AtrPattern pattern, EidCardProfile profile) {
+        Node node = root;
+        for (int i = 0; i < pattern.length(); i++) {
+            int mask = pattern.isHistoricalPrefix() ? 0xFF : pattern.mask(i);
+            int value = pattern.value(i);
+            if (mask == 0xFF) {
+                Node child = node.children.get(value);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(value, child);
+                }
+                node = child;
+            } else {
+                MaskedEdge edge = null;
+                for (MaskedEdge masked : node.masked) {
+                    if (masked.mask == mask && masked.value == value) {
+                        edge = masked;
+                        break;
+                    }
+                }
+                if (edge == null) {
+                    edge = new MaskedEdge(mask, value);
+                    node.masked.add(edge);
+                }
+                node = edge.node;
+            }
+        }
+        node.profile = profile;
+    }
+
+    /** Finds the profile of the ATR bytes from the depth on, trying exact bytes first */
+    private static EidCardProfile find(Node node, byte[] atr, int depth) {
+        if (depth == atr.length) {
+            return node.profile;
+        }
+        int b = atr[depth] & 0xFF;
+        Node child = node.children.get(b);
+        if (child != null) {
+            EidCardProfile profile = find(child, atr, depth + 1);
+            if (profile != null) {
+                return profile;
+            }
+        }
+        for (MaskedEdge edge : node.masked) {
+            if ((b & edge.mask) == edge.value) {
+                EidCardProfile profile = find(edge.node, atr, depth + 1);
+                if (profile != null) {
+                    return profile;
+                }
+            }
+        }
+        return null;
+    }
+}
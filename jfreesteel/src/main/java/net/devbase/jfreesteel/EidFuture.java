@@ -0,0 +1,188 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of an asynchronous card read, returned by the EidCard *Async() methods.
+ *
+ * Wait for the result with get(), or add a callback to be notified without blocking a thread.
+ * Callbacks are run by the thread completing the read, or right away if the read is done
+ * already, and should be fast.
+ *
+ * Cancelling a read waiting in the card queue removes it from the queue. Cancelling or
+ * timing out the read in progress completes the future right away, and the read stops with
+ * CardException before the next file, releasing the card once the current file is read.
+ */
+public class EidFuture<V> extends FutureTask<V> {
+
+    public interface Callback<V> {
+        /** Read completed with the result */
+        public void onSuccess(V result);
+
+        /**
+         * Read failed, was cancelled or timed out.
+         *
+         * @param error CardException or other exception thrown by the read,
+         *     CancellationException or TimeoutException
+         */
+        public void onFailure(Throwable error);
+    }
+
+    private static ScheduledThreadPoolExecutor scheduler;
+
+    /** Future run by the current thread, null if none */
+    private static final ThreadLocal<EidFuture<?>> running = new ThreadLocal<EidFuture<?>>();
+
+    /** Run when done, null once done, guarded by this */
+    private List<Runnable> listeners = new ArrayList<Runnable>();
+
+    EidFuture(Callable<V> callable) {
+        super(callable);
+    }
+
+    /**
+     * Adds the callback to be called when the read is done.
+     *
+     * @return This future
+     */
+    public EidFuture<V> addCallback(final Callback<? super V> callback) {
+        return addListener(new Runnable() {
+            public void run() {
+                V result;
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    callback.onFailure(e.getCause());
+                    return;
+                } catch (CancellationException e) {
+                    callback.onFailure(e);
+                    return;
+                } catch (InterruptedException e) {
+                    // not possible, the future is done
+                    Thread.currentThread().interrupt();
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess(result);
+            }
+        });
+    }
+
+    /**
+     * Fails the read with TimeoutException if it is not done in time. A read still waiting
+     * in the card queue is not started.
+     *
+     * @return This future
+     */
+    public EidFuture<V> setDeadline(final long timeout, final TimeUnit unit) {
+        final ScheduledFuture<?> timer = scheduler().schedule(new Runnable() {
+            public void run() {
+                setException(new TimeoutException(
+                        String.format("Card read not done in %d %s", timeout, unit)));
+            }
+        }, timeout, unit);
+        return addListener(new Runnable() {
+            public void run() {
+                timer.cancel(false);
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        EidFuture<?> outer = running.get();
+        running.set(this);
+        try {
+            super.run();
+        } finally {
+            running.set(outer);
+        }
+    }
+
+    /**
+     * Returns true if the current thread was interrupted, or the future it runs was cancelled
+     * or timed out, so the read should stop.
+     */
+    static boolean isStopped() {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        EidFuture<?> future = running.get();
+        return future != null && future.isDone();
+    }
+
+    /** Fails the read that can not be run */
+    void fail(Throwable error) {
+        setException(error);
+    }
+
+    private EidFuture<V> addListener(Runnable listener) {
+        synchronized (this) {
+            // done() may not have run the listeners yet, but get() returns already
+            if (listeners != null && !isDone()) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        listener.run();
+        return this;
+    }
+
+    @Override
+    protected void done() {
+        List<Runnable> done;
+        synchronized (this) {
+            done = listeners;
+            listeners = null;
+        }
+        for (Runnable listener : done) {
+            listener.run();
+        }
+    }
+
+    /** Shared timer for the deadlines */
+    private static synchronized ScheduledThreadPoolExecutor scheduler() {
+        if (scheduler == null) {
+            final ThreadFactory factory = Executors.defaultThreadFactory();
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = factory.newThread(runnable);
+                    thread.setName("jfreesteel-deadlines");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+}
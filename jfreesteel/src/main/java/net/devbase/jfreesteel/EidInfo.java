@@ -18,13 +18,14 @@
 
 package net.devbase.jfreesteel;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
 
 import org.json.simple.JSONObject;
 
 /**
- * Simple class to hold and reformat data read from eID
+ * Simple immutable class to hold and reformat data read from eID
  *
  * @author Filip Miletic (filmil@gmail.com)
  * @author Nikolic Aleksandar (nikolic.alek@gmail.com)
@@ -125,13 +126,24 @@ public class EidInfo {
         }
     }
 
+    /** All tags in ordinal order, Tag.values() returns a new copy on every call */
+    private static final Tag[] TAGS = Tag.values();
+
+    /** Number of tags, size of the ordinal indexed arrays */
+    private static final int TAG_COUNT = TAGS.length;
+
+    /** Tags holding dates, in ddMMyyyy format on the card */
+    private static final Tag[] DATE_TAGS = {
+        Tag.ISSUING_DATE, Tag.EXPIRY_DATE, Tag.DATE_OF_BIRTH, Tag.ADDRESS_DATE
+    };
+
     /** Builds an instance of EID info. */
     public static class Builder {
 
-        Map<Tag, String> builder;
+        private final String[] values;
 
         public Builder() {
-            builder = new HashMap<Tag, String>();
+            values = new String[TAG_COUNT];
         }
 
         /**
@@ -140,24 +152,116 @@ public class EidInfo {
         * @throws IllegalArgumentException if the same tag is added twice.
         */
         public Builder addValue(Tag tag, String value) {
-            builder.put(tag, value);
+            values[tag.ordinal()] = value;
             return this;
         }
 
         public EidInfo build() {
-            return new EidInfo(builder);
+            return new EidInfo(values.clone());
+        }
+    }
+
+    /** Memoized place of residence, together with the formats used to build it */
+    private static class PlaceFull {
+        final String entranceLabelFormat;
+        final String floorLabelFormat;
+        final String appartmentLabelFormat;
+        final String value;
+
+        PlaceFull(String entranceLabelFormat, String floorLabelFormat,
+                String appartmentLabelFormat, String value) {
+            this.entranceLabelFormat = entranceLabelFormat;
+            this.floorLabelFormat = floorLabelFormat;
+            this.appartmentLabelFormat = appartmentLabelFormat;
+            this.value = value;
+        }
+
+        boolean matches(String entranceLabelFormat, String floorLabelFormat,
+                String appartmentLabelFormat) {
+            return this.entranceLabelFormat.equals(entranceLabelFormat)
+                && this.floorLabelFormat.equals(floorLabelFormat)
+                && this.appartmentLabelFormat.equals(appartmentLabelFormat);
         }
     }
 
-    private Map<Tag, String> fields;
+    /** Field values indexed by tag ordinal, never modified after construction */
+    private final String[] fields;
+
+    /** Dates as milliseconds indexed by tag ordinal, Long.MIN_VALUE if missing or invalid */
+    private final long[] dates;
 
-    private EidInfo(Map<Tag, String> fields) {
+    // Derived values are computed on first use. Races are benign, at worst a value is computed
+    // more than once, and both String and PlaceFull are safely published through final fields.
+    private String nameFull;
+    private String placeOfBirthFull;
+    private PlaceFull placeFull;
+
+    private EidInfo(String[] fields) {
         this.fields = fields;
+        this.dates = parseDates(fields);
+    }
+
+    private static long[] parseDates(String[] fields) {
+        long[] dates = new long[TAG_COUNT];
+        Arrays.fill(dates, Long.MIN_VALUE);
+
+        Calendar calendar = null;
+        for (Tag tag : DATE_TAGS) {
+            String value = fields[tag.ordinal()];
+            if (value == null) {
+                continue;
+            }
+            // ddMMyyyy as stored on the card, or already formatted dd.MM.yyyy
+            String digits = value.length() == 10 && value.charAt(2) == '.' && value.charAt(5) == '.'
+                    ? value.substring(0, 2) + value.substring(3, 5) + value.substring(6, 10)
+                    : value;
+            if (digits.length() != 8) {
+                continue;
+            }
+            try {
+                int day = Integer.parseInt(digits.substring(0, 2));
+                int month = Integer.parseInt(digits.substring(2, 4));
+                int year = Integer.parseInt(digits.substring(4, 8));
+                if (calendar == null) {
+                    calendar = Calendar.getInstance();
+                    calendar.setLenient(false);
+                }
+                calendar.clear();
+                calendar.set(year, month - 1, day);
+                dates[tag.ordinal()] = calendar.getTimeInMillis();
+            } catch (NumberFormatException e) {
+                // not a date, leave as missing
+            } catch (IllegalArgumentException e) {
+                // invalid date, e.g. month 13, leave as missing
+            }
+        }
+        return dates;
     }
 
     /** Returns the value associated with the supplied tag. */
     public String get(Tag tag) {
-        return fields.get(tag);
+        return fields[tag.ordinal()];
+    }
+
+    /**
+     * Returns the date associated with the supplied tag, parsed once when EidInfo is built.
+     *
+     * @param tag One of ISSUING_DATE, EXPIRY_DATE, DATE_OF_BIRTH or ADDRESS_DATE
+     * @return Date at midnight in the default time zone, or null if missing or not a valid date
+     * @throws IllegalArgumentException if the tag does not hold a date
+     */
+    public Date getDate(Tag tag) {
+        switch (tag) {
+            case ISSUING_DATE:
+            case EXPIRY_DATE:
+            case DATE_OF_BIRTH:
+            case ADDRESS_DATE:
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Tag %s is not a date", tag));
+        }
+        long millis = dates[tag.ordinal()];
+        return millis == Long.MIN_VALUE ? null : new Date(millis);
     }
 
     /** Returns if there is a value associated with the supplied tag. */
@@ -200,7 +304,7 @@ public class EidInfo {
     
     private String formatDate(String date) {
         return date.length() == 8 ? 
-                String.format("%s.%s.%s", date.substring(0, 2), date.substring(2, 4), date.substring(4, 8)) 
+                date.substring(0, 2) + "." + date.substring(2, 4) + "." + date.substring(4, 8)
                 : date;
     }
 
@@ -210,8 +314,12 @@ public class EidInfo {
      * @return Nicely formatted full name
      */
     public String getNameFull() {
-        return String.format(
-            "%s %s %s", get(Tag.GIVEN_NAME), get(Tag.PARENT_GIVEN_NAME), get(Tag.SURNAME));
+        String value = nameFull;
+        if (value == null) {
+            value = get(Tag.GIVEN_NAME) + " " + get(Tag.PARENT_GIVEN_NAME) + " " + get(Tag.SURNAME);
+            nameFull = value;
+        }
+        return value;
     }
 
     /**
@@ -237,12 +345,19 @@ public class EidInfo {
     public String getPlaceFull(
             String entranceLabelFormat, String floorLabelFormat, String appartmentLabelFormat) {
 
-        StringBuilder out = new StringBuilder();
-
         entranceLabelFormat = sanitizeFormat(entranceLabelFormat);
         floorLabelFormat = sanitizeFormat(floorLabelFormat);
         appartmentLabelFormat = sanitizeFormat(appartmentLabelFormat);
 
+        // the same formats are used over and over, remember the last result
+        PlaceFull cached = placeFull;
+        if (cached != null
+                && cached.matches(entranceLabelFormat, floorLabelFormat, appartmentLabelFormat)) {
+            return cached.value;
+        }
+
+        StringBuilder out = new StringBuilder();
+
         // Main street, Main street 11, Main street 11A
         appendTo(out, Tag.STREET);
         appendTo(out, " ", Tag.HOUSE_NUMBER);
@@ -278,7 +393,10 @@ public class EidInfo {
             out.append(rawState);
         }
 
-        return out.toString();
+        String value = out.toString();
+        placeFull = new PlaceFull(
+                entranceLabelFormat, floorLabelFormat, appartmentLabelFormat, value);
+        return value;
     }
 
     /**
@@ -288,13 +406,18 @@ public class EidInfo {
      */
     public String getPlaceOfBirthFull()
     {
-        StringBuilder out = new StringBuilder();
+        String value = placeOfBirthFull;
+        if (value == null) {
+            StringBuilder out = new StringBuilder();
 
-        appendTo(out, Tag.PLACE_OF_BIRTH);
-        appendTo(out, ", ", Tag.COMMUNITY_OF_BIRTH);
-        appendTo(out, "\n", Tag.STATE_OF_BIRTH);
+            appendTo(out, Tag.PLACE_OF_BIRTH);
+            appendTo(out, ", ", Tag.COMMUNITY_OF_BIRTH);
+            appendTo(out, "\n", Tag.STATE_OF_BIRTH);
 
-        return out.toString();
+            value = out.toString();
+            placeOfBirthFull = value;
+        }
+        return value;
     }
 
     public String getDocRegNo() {
@@ -373,8 +496,11 @@ public class EidInfo {
     @Override
     public String toString() {
         StringBuilder out = new StringBuilder();
-        for (Map.Entry<Tag, String> field : fields.entrySet()) {
-            out.append(String.format("%s: %s", field.getKey(), field.getValue()));
+        for (Tag tag : TAGS) {
+            String value = fields[tag.ordinal()];
+            if (value != null) {
+                out.append(String.format("%s: %s", tag, value));
+            }
         }
         return out.toString();
     }
@@ -385,9 +511,11 @@ public class EidInfo {
         obj.put("name_full", getNameFull());
         obj.put("place_full", getPlaceFull("ulaz %s", "%s. sprat", "br. %s"));
         obj.put("place_of_birth_full", getPlaceOfBirthFull());
-        for (Map.Entry<Tag, String> field : fields.entrySet()) {
-            Tag tag = field.getKey();
-            obj.put(tag.getKey(), field.getValue());
+        for (Tag tag : TAGS) {
+            String value = fields[tag.ordinal()];
+            if (value != null) {
+                obj.put(tag.getKey(), value);
+            }
         }
         return obj;
     }
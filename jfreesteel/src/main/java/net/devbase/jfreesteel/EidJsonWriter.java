@@ -0,0 +1,260 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import net.devbase.jfreesteel.EidInfo.Tag;
+
+/**
+ * Streaming JSON writer for EidInfo and the card photo.
+ *
+ * Writes directly to an Appendable without building an intermediate JSONObject. Keys are the
+ * same as in EidInfo.toJSON() and strings are escaped the same way as json-simple does, but
+ * the order is stable: name_full, place_full and place_of_birth_full first, followed by all
+ * present tags in Tag order.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * new EidJsonWriter(out)
+ *     .beginObject()
+ *     .name("info").value(info)
+ *     .name("photo").base64Value(photo)
+ *     .endObject();
+ * }
+ * </pre>
+ *
+ * The writer is not thread safe.
+ */
+public class EidJsonWriter {
+
+    private static final Tag[] TAGS = Tag.values();
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final char[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private final Appendable out;
+
+    /** Bit per nesting level, set while no member was written to the object on that level */
+    private long empty = 0;
+    private int depth = 0;
+
+    /** Name was written, waiting for the value */
+    private boolean named = false;
+
+    public EidJsonWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes EidInfo as a JSON object.
+     */
+    public static void write(EidInfo info, Appendable out) throws IOException {
+        new EidJsonWriter(out).value(info);
+    }
+
+    /**
+     * Writes {"info": {...}, "photo": "..."} as UTF-8 to the stream, the photo is optional.
+     *
+     * The stream is flushed, but not closed.
+     *
+     * @param info EidInfo to write
+     * @param photo Photo as JPEG bytes, written as a Base64 string, or null
+     * @param out Stream to write to
+     */
+    public static void write(EidInfo info, byte[] photo, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        EidJsonWriter json = new EidJsonWriter(writer)
+            .beginObject()
+            .name("info").value(info);
+        if (photo != null) {
+            json.name("photo").base64Value(photo);
+        }
+        json.endObject();
+        writer.flush();
+    }
+
+    public EidJsonWriter beginObject() throws IOException {
+        beforeValue();
+        if (depth == 64) {
+            throw new IllegalStateException("Nesting too deep");
+        }
+        empty |= 1L << depth;
+        depth++;
+        out.append('{');
+        return this;
+    }
+
+    public EidJsonWriter endObject() throws IOException {
+        if (depth == 0 || named) {
+            throw new IllegalStateException("No object to end");
+        }
+        depth--;
+        out.append('}');
+        return this;
+    }
+
+    /** Writes the member name, must be followed by a value. */
+    public EidJsonWriter name(String name) throws IOException {
+        if (depth == 0 || named) {
+            throw new IllegalStateException("Name outside of an object");
+        }
+        long bit = 1L << (depth - 1);
+        if ((empty & bit) != 0) {
+            empty &= ~bit;
+        } else {
+            out.append(',');
+        }
+        string(name);
+        out.append(':');
+        named = true;
+        return this;
+    }
+
+    /** Writes the string value, or null. */
+    public EidJsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    public EidJsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.append(Long.toString(value));
+        return this;
+    }
+
+    /** Writes EidInfo as a JSON object, or null. */
+    public EidJsonWriter value(EidInfo info) throws IOException {
+        if (info == null) {
+            return value((String) null);
+        }
+        beginObject();
+        name("name_full").value(info.getNameFull());
+        name("place_full").value(info.getPlaceFull("ulaz %s", "%s. sprat", "br. %s"));
+        name("place_of_birth_full").value(info.getPlaceOfBirthFull());
+        for (Tag tag : TAGS) {
+            String value = info.get(tag);
+            if (value != null) {
+                name(tag.getKey()).value(value);
+            }
+        }
+        return endObject();
+    }
+
+    /** Writes the bytes as a Base64 encoded string, or null. */
+    public EidJsonWriter base64Value(byte[] bytes) throws IOException {
+        beforeValue();
+        if (bytes == null) {
+            out.append("null");
+            return this;
+        }
+
+        out.append('"');
+        int i = 0;
+        for (; i + 2 < bytes.length; i += 3) {
+            int chunk = ((bytes[i] & 0xFF) << 16) | ((bytes[i + 1] & 0xFF) << 8)
+                    | (bytes[i + 2] & 0xFF);
+            out.append(BASE64[chunk >>> 18])
+                .append(BASE64[(chunk >>> 12) & 0x3F])
+                .append(BASE64[(chunk >>> 6) & 0x3F])
+                .append(BASE64[chunk & 0x3F]);
+        }
+        int remaining = bytes.length - i;
+        if (remaining == 1) {
+            int chunk = (bytes[i] & 0xFF) << 16;
+            out.append(BASE64[chunk >>> 18])
+                .append(BASE64[(chunk >>> 12) & 0x3F])
+                .append("==");
+        } else if (remaining == 2) {
+            int chunk = ((bytes[i] & 0xFF) << 16) | ((bytes[i + 1] & 0xFF) << 8);
+            out.append(BASE64[chunk >>> 18])
+                .append(BASE64[(chunk >>> 12) & 0x3F])
+                .append(BASE64[(chunk >>> 6) & 0x3F])
+                .append('=');
+        }
+        out.append('"');
+        return this;
+    }
+
+    private void beforeValue() {
+        if (depth > 0 && !named) {
+            throw new IllegalStateException("Value inside an object must follow a name");
+        }
+        named = false;
+    }
+
+    /** Writes a quoted string escaped the same way as json-simple JSONValue.escape() */
+    private void string(String value) throws IOException {
+        out.append('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '/':
+                    out.append("\\/");
+                    break;
+                default:
+                    if (ch <= '\u001F' || (ch >= '\u007F' && ch <= '\u009F')
+                            || (ch >= '\u2000' && ch <= '\u20FF')) {
+                        out.append("\\u")
+                            .append(HEX[(ch >> 12) & 0xF])
+                            .append(HEX[(ch >> 8) & 0xF])
+                            .append(HEX[(ch >> 4) & 0xF])
+                            .append(HEX[ch & 0xF]);
+                    } else {
+                        out.append(ch);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.awt.Image;
+
+import javax.smartcardio.CardException;
+
+/**
+ * Immutable snapshot of the public data read from the eID card.
+ *
+ * Holds the parsed EidInfo, the photo as raw JPEG bytes and the raw TLV encoded document,
+ * personal and residence files, as read by EidCard.readAll() in a single exclusive session.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidSnapshot {
+
+    private final EidInfo info;
+    private final byte[] photo;
+    private final byte[] documentFile;
+    private final byte[] personalFile;
+    private final byte[] residenceFile;
+
+    EidSnapshot(EidInfo info, byte[] photo,
+            byte[] documentFile, byte[] personalFile, byte[] residenceFile) {
+        this.info = info;
+        this.photo = photo;
+        this.documentFile = documentFile;
+        this.personalFile = personalFile;
+        this.residenceFile = residenceFile;
+    }
+
+    /** Returns the parsed card holder and document data. */
+    public EidInfo getInfo() {
+        return info;
+    }
+
+    /** Returns a copy of the photo as stored on the card, in JPEG format. */
+    public byte[] getPhotoBytes() {
+        return photo.clone();
+    }
+
+    /** Decodes the photo stored on the card. */
+    public Image getPhoto() throws CardException {
+        return EidCard.decodePhoto(photo);
+    }
+
+    /** Returns a copy of the raw TLV encoded document file. */
+    public byte[] getDocumentFile() {
+        return documentFile.clone();
+    }
+
+    /** Returns a copy of the raw TLV encoded personal data file. */
+    public byte[] getPersonalFile() {
+        return personalFile.clone();
+    }
+
+    /** Returns a copy of the raw TLV encoded place of residence file. */
+    public byte[] getResidenceFile() {
+        return residenceFile.clone();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Date;
+
+import javax.smartcardio.CardException;
+
+import net.devbase.jfreesteel.EidInfo.Tag;
+
+/**
+ * EidInfo read from the card on demand, one data file at a time.
+ *
+ * The data file holding a tag is read on first access to any of its tags, and kept for
+ * the following calls. Use EidCard.readEidInfoLazily() to get an instance.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * LazyEidInfo info = card.readEidInfoLazily();
+ * if (isAllowed(info.get(Tag.PERSONAL_NUMBER), info.getDate(Tag.EXPIRY_DATE))) ...
+ * }
+ * </pre>
+ *
+ * Instances are thread safe.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class LazyEidInfo {
+
+    private final EidCard card;
+
+    /** Parsed data files, indexed as EidCard data files, null until read */
+    private final EidInfo[] files = new EidInfo[EidCard.DATA_FILE_COUNT];
+
+    LazyEidInfo(EidCard card) {
+        this.card = card;
+    }
+
+    /**
+     * Returns the tag value, reading its data file if not read before.
+     *
+     * @throws IllegalArgumentException if the tag is not stored on the card
+     */
+    public String get(Tag tag) throws CardException {
+        return file(EidCard.dataFileOf(tag)).get(tag);
+    }
+
+    /**
+     * Returns the date tag value, reading its data file if not read before.
+     *
+     * @see EidInfo#getDate(Tag)
+     */
+    public Date getDate(Tag tag) throws CardException {
+        return file(EidCard.dataFileOf(tag)).getDate(tag);
+    }
+
+    /** Returns true if the data file holding the tag was already read. */
+    public synchronized boolean isLoaded(Tag tag) {
+        return files[EidCard.dataFileOf(tag)] != null;
+    }
+
+    /** Reads all data files not read before, and returns complete EidInfo. */
+    public synchronized EidInfo getEidInfo() throws CardException {
+        boolean[] missing = new boolean[files.length];
+        boolean any = false;
+        for (int i = 0; i < files.length; i++) {
+            missing[i] = files[i] == null;
+            any |= missing[i];
+        }
+        if (any) {
+            EidInfo info = card.readDataFiles(missing);
+            for (int i = 0; i < files.length; i++) {
+                if (missing[i]) {
+                    files[i] = info;
+                }
+            }
+        }
+
+        EidInfo.Builder builder = new EidInfo.Builder();
+        for (Tag tag : Tag.values()) {
+            for (EidInfo file : files) {
+                String value = file.get(tag);
+                if (value != null) {
+                    builder.addValue(tag, value);
+                    break;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private synchronized EidInfo file(int index) throws CardException {
+        if (files[index] == null) {
+            boolean[] selected = new boolean[files.length];
+            selected[index] = true;
+            files[index] = card.readDataFiles(selected);
+        }
+        return files[index];
+    }
+}
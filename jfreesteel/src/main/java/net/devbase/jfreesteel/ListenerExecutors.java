@@ -0,0 +1,107 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executors for notifying the Reader and ReaderManager listeners.
+ *
+ * Each listener is notified in order, one event at a time, whatever the executor. With the
+ * DIRECT executor the listeners are notified on the watcher thread, and a slow listener
+ * delays the card detection and the other listeners. With any other executor each listener
+ * is notified on its own, and a card inserted and removed before the listener was notified
+ * is reported to it just as removed.
+ */
+public final class ListenerExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerExecutors.class);
+
+    /** Notifies the listeners on the watcher thread, the default of the Reader */
+    public static final Executor DIRECT = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /** Default number of threads in the bounded pool */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private ListenerExecutors() {
+    }
+
+    /**
+     * Returns the recommended executor: a thread per event with virtual threads on Java 21 and
+     * newer, and the bounded pool otherwise.
+     */
+    public static ExecutorService newDefault() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        return executor != null ? executor : newBoundedPool(DEFAULT_POOL_SIZE);
+    }
+
+    /** Returns an executor starting a virtual thread per event, or null before Java 21. */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Java 7 target, look the method up at run time
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // preview feature not enabled on Java 19 and 20
+            logger.info(String.format("Virtual threads not available: %s", e.getCause()));
+            return null;
+        }
+    }
+
+    /**
+     * Returns a pool of at most the given number of daemon threads. Idle threads are stopped
+     * after a minute.
+     */
+    public static ExecutorService newBoundedPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Invalid pool size %d", threads));
+        }
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "jfreesteel-listener-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Events of a single listener, delivered in order and one at a time on the executor.
+ *
+ * A removal posted while the insertion into the same source is still waiting replaces the
+ * insertion, so the listener does not get a card that is gone already.
+ */
+class ListenerQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerQueue.class);
+
+    enum Kind { INSERTED, REMOVED, OTHER }
+
+    /** Listener notification */
+    abstract static class Event implements Runnable {
+        final Kind kind;
+        final Object source;
+
+        /** System.nanoTime() when the event was posted */
+        long posted;
+
+        /**
+         * @param kind Kind of the event, insertions and removals are coalesced
+         * @param source Source of the event, e.g. the terminal name
+         */
+        Event(Kind kind, Object source) {
+            this.kind = kind;
+            this.source = source;
+        }
+    }
+
+    private final Executor executor;
+
+    /** Metrics recording the dispatch latency, null if not recorded */
+    private final ReaderMetrics metrics;
+
+    /** Events not delivered yet, guarded by this */
+    private final ArrayDeque<Event> pending = new ArrayDeque<Event>();
+
+    /** True while the events are being delivered, guarded by this */
+    private boolean running = false;
+
+    private final Runnable drain = new Runnable() {
+        public void run() {
+            while (true) {
+                Event event;
+                synchronized (ListenerQueue.this) {
+                    event = pending.poll();
+                    if (event == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    logger.error("Listener failed", e);
+                }
+                if (metrics != null) {
+                    metrics.dispatched(System.nanoTime() - event.posted);
+                }
+            }
+        }
+    };
+
+    ListenerQueue(Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * @param executor Executor delivering the events
+     * @param metrics Metrics recording the time from posting an event to the listener
+     *     returning, or null
+     */
+    ListenerQueue(Executor executor, ReaderMetrics metrics) {
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    void post(Event event) {
+        event.posted = System.nanoTime();
+        synchronized (this) {
+            if (event.kind == Kind.REMOVED) {
+                dropPendingInsertion(event.source);
+            }
+            pending.add(event);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            logger.error("Listener executor rejected the event", e);
+            synchronized (this) {
+                pending.clear();
+                running = false;
+            }
+        }
+    }
+
+    /** Removes the last waiting event from the source if it is an insertion */
+    private void dropPendingInsertion(Object source) {
+        Iterator<Event> it = pending.descendingIterator();
+        while (it.hasNext()) {
+            Event event = it.next();
+            if (event.source.equals(source)) {
+                if (event.kind == Kind.INSERTED) {
+                    it.remove();
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read plan of a card generation: the layout of the eID files and their expected sizes.
+ *
+ * Readers use the plan to size the first READ BINARY of a file so it covers the file header
+ * and the data of a typical file together, instead of reading the header first to learn the
+ * file length. The plan learns the file sizes from the cards read: the first read of a file
+ * is as long as the largest file seen within the expected range, and is shortened for good
+ * when a card rejects it for reading past the end of the file, so a mix of cards settles on
+ * the smallest file rejecting the read.
+ *
+ * Plans are selected by the card profile, see EidCardProfile.getReadPlan(), and shared by all
+ * cards of the generation, and by the virtual cards storing the files in the plan layout.
+ * Plans are thread safe.
+ */
+public final class ReadPlan {
+
+    /** File header layout */
+    public enum Layout {
+
+        /** 6-byte header, with the data length as 16bit LE at 4B offset */
+        APOLLO(6) {
+            @Override
+            public int fileLength(byte[] header) {
+                return getHeaderLength() + (((0xFF&header[5])<<8) | (0xFF&header[4]));
+            }
+
+            @Override
+            public byte[] wrap(byte[] content) {
+                byte[] file = new byte[content.length + 6];
+                file[4] = (byte) content.length;
+                file[5] = (byte) (content.length >> 8);
+                System.arraycopy(content, 0, file, 6, content.length);
+                return file;
+            }
+        },
+
+        /** 4-byte outer tag, with the file length including the tag as 16bit LE at 2B offset */
+        GEMALTO(4) {
+            @Override
+            public int fileLength(byte[] header) {
+                return ((0xFF&header[3])<<8) | (0xFF&header[2]);
+            }
+
+            @Override
+            public byte[] wrap(byte[] content) {
+                byte[] file = new byte[content.length + 4];
+                file[2] = (byte) file.length;
+                file[3] = (byte) (file.length >> 8);
+                System.arraycopy(content, 0, file, 4, content.length);
+                return file;
+            }
+        };
+
+        private final int headerLength;
+
+        Layout(int headerLength) {
+            this.headerLength = headerLength;
+        }
+
+        public int getHeaderLength() {
+            return headerLength;
+        }
+
+        /** Returns the length of the whole file, including the header */
+        public abstract int fileLength(byte[] header);
+
+        /** Returns the file as stored on the card, with the header in front of the content */
+        public abstract byte[] wrap(byte[] content);
+    }
+
+    /** File read by the plan, with the expected length of the whole file including the header */
+    public static final class FileSpec {
+
+        private final byte[] name;
+        private final int minLength;
+        private final int maxLength;
+
+        /** Largest file length seen within the expected range, 0 if none, guarded by this */
+        private int learnedLength = 0;
+
+        /** Learned length not to exceed, lowered by a read past the end, guarded by this */
+        private int learnedLimit;
+
+        /**
+         * @param name File path, as selected on the card
+         * @param minLength Expected minimum file length
+         * @param maxLength Expected maximum file length
+         */
+        public FileSpec(byte[] name, int minLength, int maxLength) {
+            if (minLength <= 0 || maxLength < minLength) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid length range %d-%d", minLength, maxLength));
+            }
+            this.name = name.clone();
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.learnedLimit = maxLength;
+        }
+
+        public byte[] getName() {
+            return name.clone();
+        }
+
+        public int getMinLength() {
+            return minLength;
+        }
+
+        public int getMaxLength() {
+            return maxLength;
+        }
+
+        /** Returns the length the first read of the file asks for */
+        public synchronized int getExpectedLength() {
+            return Math.max(minLength, learnedLength);
+        }
+
+        /**
+         * Raises the expected length to the length read, if within the expected range, but not
+         * above the length of a file that rejected a longer read.
+         */
+        synchronized void learn(int length) {
+            if (length < minLength || length > maxLength) {
+                return;
+            }
+            learnedLength = Math.max(learnedLength, Math.min(length, learnedLimit));
+        }
+
+        /**
+         * Lowers the expected length after a card rejected the read past the end of the file,
+         * and keeps the longer files read later from raising it again.
+         */
+        synchronized void missed(int length) {
+            learnedLimit = Math.min(learnedLimit, Math.max(length, minLength));
+            learnedLength = Math.min(learnedLength, length < minLength ? 0 : learnedLimit);
+        }
+    }
+
+    /** Apollo 2008 cards */
+    public static final ReadPlan APOLLO = new ReadPlan("Apollo", Layout.APOLLO,
+            new FileSpec(EidCard.DOCUMENT_FILE, 64, 512),
+            new FileSpec(EidCard.PERSONAL_FILE, 128, 1024),
+            new FileSpec(EidCard.RESIDENCE_FILE, 64, 1024),
+            new FileSpec(EidCard.PHOTO_FILE, 1024, 32768));
+
+    /** Gemalto MultiApp ID cards, issued after Aug 18 2014 */
+    public static final ReadPlan GEMALTO = new ReadPlan("Gemalto", Layout.GEMALTO,
+            new FileSpec(EidCard.DOCUMENT_FILE, 64, 512),
+            new FileSpec(EidCard.PERSONAL_FILE, 128, 1024),
+            new FileSpec(EidCard.RESIDENCE_FILE, 64, 1024),
+            new FileSpec(EidCard.PHOTO_FILE, 1024, 32768));
+
+    private final String name;
+    private final Layout layout;
+    private final List<FileSpec> files;
+
+    /**
+     * @param name Name of the card generation, for the logs
+     * @param layout File header layout
+     * @param files Files in the order they are read
+     */
+    public ReadPlan(String name, Layout layout, FileSpec... files) {
+        this.name = name;
+        this.layout = layout;
+        this.files = Collections.unmodifiableList(new ArrayList<FileSpec>(Arrays.asList(files)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /** Returns the files in the order they are read */
+    public List<FileSpec> getFiles() {
+        return files;
+    }
+
+    /** Returns the file with the path, or null if the file is not in the plan */
+    public FileSpec getFile(byte[] name) {
+        for (FileSpec file : files) {
+            if (Arrays.equals(file.name, name)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the length of the first read of the file, covering the header and the data of
+     * a typical file, at most limit bytes. Files not in the plan are read header first.
+     */
+    int firstReadLength(byte[] name, int limit) {
+        FileSpec file = getFile(name);
+        int length = file == null ? layout.getHeaderLength() : file.getExpectedLength();
+        return Math.min(length, limit);
+    }
+
+    /** Learns the length of the file read */
+    void learn(byte[] name, int length) {
+        FileSpec file = getFile(name);
+        if (file != null) {
+            file.learn(length);
+        }
+    }
+
+    /** Learns the length of the file after the first read was rejected as too long */
+    void missed(byte[] name, int length) {
+        FileSpec file = getFile(name);
+        if (file != null) {
+            file.missed(length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReadPlan[" + name + "]";
+    }
+}
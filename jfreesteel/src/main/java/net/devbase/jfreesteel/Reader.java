@@ -17,7 +17,13 @@
  */
 package net.devbase.jfreesteel;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.smartcardio.CardException;
 import javax.smartcardio.CardTerminal;
@@ -37,6 +43,15 @@ import org.slf4j.LoggerFactory;
  * EidCard object that can be used to read data from the Serbian eID card.
  * Listener should assume that card is removed in the default state.
  *
+ * To read the card once for all listeners, add a ReaderSnapshotListener with
+ * addSnapshotListener(). The data and the photo are then read once, starting as soon as the
+ * card is connected, with readAllAsync() on the card queue, and the same EidSnapshot is
+ * passed to all snapshot listeners once read. The card is not read on the Reader thread.
+ *
+ * Listeners are notified on the Reader thread by default. Pass an executor from
+ * ListenerExecutors to the constructor to notify each listener on its own, so slow
+ * listeners do not delay the card detection or each other.
+ *
  * Reader will ignore cards with an unknown ATR.
  *
  * @author Goran Rakic (grakic@devbase.net)
@@ -45,6 +60,18 @@ import org.slf4j.LoggerFactory;
 public class Reader {
 
     private static final Logger logger = LoggerFactory.getLogger(Reader.class);
+
+    /** Default shortest poll interval, used right after a card is inserted or removed, in ms */
+    public static final long DEFAULT_MIN_POLL_INTERVAL = 100;
+
+    /** Default longest poll interval, reached after doubling while idle, in ms */
+    public static final long DEFAULT_MAX_POLL_INTERVAL = 3000;
+
+    /**
+     * Default longest poll interval on buggy Java, where every poll connects to the card and
+     * a card is detected only by polling, in ms
+     */
+    public static final long DEFAULT_BUGGY_JAVA_MAX_POLL_INTERVAL = 300;
     /** CardTerminal this Reader is assigned to */
     private CardTerminal terminal;
 
@@ -57,9 +84,36 @@ public class Reader {
     // concurrent modification of the iterated collection.
     private CopyOnWriteArrayList<ReaderListener> listeners;
 
+    /** Events waiting for each listener */
+    private final ConcurrentMap<ReaderListener, ListenerQueue> queues =
+            new ConcurrentHashMap<ReaderListener, ListenerQueue>();
+
+    /** Executor notifying the listeners */
+    private final Executor listenerExecutor;
+
     /** Thread waiting for card insert/removal */
     private Thread listenerThread;
 
+    /** Cache set on every inserted card, null if disabled */
+    private volatile EidCache cache;
+
+    /** Card event statistics and the thread state */
+    private final ReaderMetrics metrics;
+
+    /** Snapshot listeners, wrapped to be notified as card listeners */
+    private final ConcurrentMap<ReaderSnapshotListener, SnapshotAdapter> snapshotListeners =
+            new ConcurrentHashMap<ReaderSnapshotListener, SnapshotAdapter>();
+
+    /** Data read from the inserted card for the snapshot listeners, null if not read */
+    private volatile Prefetch prefetch;
+
+    /**
+     * Poll interval bounds, when waitForCard* is not blocking or on buggy Java, in ms. The
+     * longest interval is 0 until set, to use the default for the Java in use.
+     */
+    private volatile long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+    private volatile long maxPollInterval = 0;
+
     public interface ReaderListener {
         /**
          * Card is inserted into the reader terminal. Use EidCard object to read
@@ -73,9 +127,116 @@ public class Reader {
         public void removed();
     }
 
+    public interface ReaderSnapshotListener {
+        /**
+         * Card is inserted into the reader terminal and its data and photo are read. Use
+         * EidCard object to read anything else from the card.
+         *
+         * @param card EidCard object
+         * @param snapshot Data and photo read from the card, shared by all listeners
+         */
+        public void inserted(EidCard card, EidSnapshot snapshot);
+
+        /**
+         * Card is inserted into the reader terminal, but could not be read, e.g. because it
+         * was removed too early. Use EidCard object to try again.
+         */
+        public void readFailed(EidCard card, CardException error);
+
+        /** Card is removed from the reader terminal */
+        public void removed();
+    }
+
+    /** Snapshot of the card, read once on the card queue for all snapshot listeners */
+    private static class Prefetch {
+        final EidCard card;
+        private final EidFuture<EidSnapshot> future;
+
+        /** Starts reading the card */
+        Prefetch(final EidCard card) {
+            this.card = card;
+            future = card.readAllAsync().addCallback(new EidFuture.Callback<EidSnapshot>() {
+                public void onSuccess(EidSnapshot snapshot) {
+                }
+
+                public void onFailure(Throwable error) {
+                    logger.info(String.format("Prefetch failed: %s", error.getMessage()));
+                }
+            });
+        }
+
+        /** Waits for the card read */
+        EidSnapshot get() throws CardException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CardException("Interrupted waiting for the card read", e);
+            } catch (CancellationException e) {
+                throw new CardException("Card removed while reading", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CardException) {
+                    throw (CardException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new CardException(cause);
+            }
+        }
+
+        /** Stops the read of the removed card */
+        void cancel() {
+            future.cancel(true);
+        }
+    }
+
+    /** Notifies the snapshot listener, with the prefetched snapshot if available */
+    private static class SnapshotAdapter implements ReaderListener {
+        final ReaderSnapshotListener listener;
+
+        SnapshotAdapter(ReaderSnapshotListener listener) {
+            this.listener = listener;
+        }
+
+        public void inserted(EidCard card) {
+            inserted(card, null);
+        }
+
+        /** Called on the listener queue, waiting there for the card read */
+        void inserted(EidCard card, Prefetch prefetch) {
+            if (prefetch == null || prefetch.card != card) {
+                // card inserted before the listener was added, read it now
+                prefetch = new Prefetch(card);
+            }
+            EidSnapshot snapshot;
+            try {
+                snapshot = prefetch.get();
+            } catch (CardException e) {
+                listener.readFailed(card, e);
+                return;
+            }
+            listener.inserted(card, snapshot);
+        }
+
+        public void removed() {
+            listener.removed();
+        }
+    }
+
     public Reader(final CardTerminal terminal) {
+        this(terminal, ListenerExecutors.DIRECT);
+    }
+
+    /**
+     * @param terminal Terminal to watch
+     * @param listenerExecutor Executor notifying the listeners, e.g. ListenerExecutors.newDefault()
+     */
+    public Reader(final CardTerminal terminal, Executor listenerExecutor) {
         this.terminal = terminal;
+        this.listenerExecutor = listenerExecutor;
         listeners = new CopyOnWriteArrayList<ReaderListener>();
+        metrics = new ReaderMetrics(terminal.getName(), listeners);
 
         // start card connection in a new thread
         listenerThread = new Thread(new Runnable() {
@@ -84,7 +245,8 @@ public class Reader {
                 logger.info(String.format("Init Reader on terminal %s", terminal.getName()));
                 try {
                     // sometimes reader is not blocking on waitForCard*, we start with inf. timeout
-                    int timeoutMs = 0;
+                    // and poll with the backoff once we see that
+                    long timeoutMs = 0;
 
                     boolean wrongCardPresent = false;
 
@@ -92,12 +254,17 @@ public class Reader {
                     boolean buggyJava = isMacWithBuggyJava();
                     if (buggyJava) {
                         logger.info("Working with buggy Java, doing my best");
+                        metrics.setBuggyJava(true);
+                        timeoutMs = minPollInterval;
+                        metrics.setPollInterval(timeoutMs);
                     }
 
                     // main thread loop
                     while (true) {
 
                         boolean statusChanged = true;
+                        boolean idle = false;
+                        long waitedMs = 0;
                         logger.info("Loop entry");
 
                         try {
@@ -110,10 +277,20 @@ public class Reader {
                             if (!buggyJava) {
                                 if (!cardPresent) {
                                     logger.info("Card not present, wait for insertion");
+                                    metrics.setState(ReaderMetrics.State.WAITING_FOR_INSERTION);
+                                    long start = System.nanoTime();
                                     terminal.waitForCardPresent(timeoutMs);
+                                    long waited = System.nanoTime() - start;
+                                    metrics.waitedForInsertion(waited);
+                                    waitedMs = TimeUnit.NANOSECONDS.toMillis(waited);
                                 } else if ((eidcard != null || wrongCardPresent) && cardPresent) {
                                     logger.info("Card present, wait for removal");
+                                    metrics.setState(ReaderMetrics.State.WAITING_FOR_REMOVAL);
+                                    long start = System.nanoTime();
                                     terminal.waitForCardAbsent(timeoutMs);
+                                    long waited = System.nanoTime() - start;
+                                    metrics.waitedForRemoval(waited);
+                                    waitedMs = TimeUnit.NANOSECONDS.toMillis(waited);
                                 }
                                 cardPresent = isCardPresent(buggyJava);
                             }
@@ -124,11 +301,10 @@ public class Reader {
                             } else if (eidcard != null && !cardPresent) {
                                 disconnect();
                             } else if (!wrongCardPresent){
-                                // either we are with buggyJava, or there is another bug in PC/SC
-                                // and waitForCard*(0) is not blocking and returns immediately!
-                                // Increase the timeout not to burn cpu
-                                logger.info("Setting timeout to 3 seconds");
-                                timeoutMs = 3000;
+                                // either we are with buggyJava, waitForCard* has timed out, or
+                                // there is another bug in PC/SC and waitForCard*(0) is not
+                                // blocking and returns immediately!
+                                idle = true;
                                 statusChanged = false;
                             } else {
                                 statusChanged = false;
@@ -137,16 +313,20 @@ public class Reader {
                         } catch (IllegalArgumentException e1) {
                             // wrong card
                             logger.info("WRONG CARD");
+                            metrics.wrongCard();
                             statusChanged = false;
                             wrongCardPresent = true;
 
                         } catch (CardException e1) {
+                            metrics.cardError(e1);
+
                             // force "disconnect"
                             eidcard = null;
 
                             // try to reconnect if card is present and continue the loop
                             if (isCardPresent(buggyJava)) {
                                 logger.info("RE-CONNECT");
+                                metrics.reconnect();
                                 // will step out on repeated exception
                                 connect();
                             }
@@ -157,19 +337,58 @@ public class Reader {
                         }
 
                         if (buggyJava) {
-                            try {
-                                Thread.sleep(300);
-                            } catch(InterruptedException ex) {
-                                Thread.currentThread().interrupt();
-                            }
+                            metrics.setState(ReaderMetrics.State.POLLING);
+                            sleep(timeoutMs);
+                            timeoutMs = statusChanged
+                                    ? minPollInterval : backoff(timeoutMs, true);
+                            metrics.setPollInterval(timeoutMs);
+                        } else if (idle && timeoutMs == 0) {
+                            // not blocking, poll not to burn cpu
+                            logger.info("waitForCard* is not blocking, polling");
+                            timeoutMs = minPollInterval;
+                            metrics.setTimeoutFallback(true);
+                            metrics.setPollInterval(timeoutMs);
+                        } else if (idle) {
+                            // nothing happened, wait what is left of the interval and back off
+                            sleep(timeoutMs - waitedMs);
+                            timeoutMs = backoff(timeoutMs, false);
+                            metrics.setPollInterval(timeoutMs);
+                        } else if (statusChanged && timeoutMs != 0) {
+                            // poll often after the activity
+                            timeoutMs = minPollInterval;
+                            metrics.setPollInterval(timeoutMs);
                         }
                     }
                 } catch (CardException e2) {
+                    logger.info(String.format("Reader thread stopped: %s", e2.getMessage()));
+                    metrics.cardError(e2);
+                    metrics.setState(ReaderMetrics.State.STOPPED);
                     // Break the loop, exit thread
                     // TODO: Should we notify our listeners that there is no Reader thread?
                 }
             }
 
+            /** Doubles the poll interval, up to the longest interval */
+            private long backoff(long interval, boolean buggyJava) {
+                long max = maxPollInterval;
+                if (max == 0) {
+                    max = buggyJava ? DEFAULT_BUGGY_JAVA_MAX_POLL_INTERVAL
+                            : DEFAULT_MAX_POLL_INTERVAL;
+                }
+                return Math.max(minPollInterval, Math.min(max, interval * 2));
+            }
+
+            private void sleep(long ms) {
+                if (ms <= 0) {
+                    return;
+                }
+                try {
+                    Thread.sleep(ms);
+                } catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
             /** Notify all listeners. */
             private void notifyListeners() {
                 for (ReaderListener listener : listeners) {
@@ -188,6 +407,9 @@ public class Reader {
      * @param listener Card listener object to be added
      */
     public void addCardListener(ReaderListener listener) {
+        if (!queues.containsKey(listener)) {
+            queues.putIfAbsent(listener, new ListenerQueue(listenerExecutor, metrics));
+        }
         listeners.add(listener);
 
         // if the card is inserted, notify the listener about the current state
@@ -202,24 +424,121 @@ public class Reader {
      * @return true if the removal succeeded; false otherwise
      */
     public boolean removeCardListener(ReaderListener listener) {
-        return listeners.remove(listener);
+        boolean removed = listeners.remove(listener);
+        if (!listeners.contains(listener)) {
+            queues.remove(listener);
+        }
+        return removed;
+    }
+
+    /**
+     * Add new snapshot listener to be notified on card insertion/removal, with the data read
+     * once for all snapshot listeners. Listeners should assume that the card is removed in
+     * default state.
+     *
+     * @param listener Snapshot listener object to be added
+     */
+    public void addSnapshotListener(ReaderSnapshotListener listener) {
+        SnapshotAdapter adapter = new SnapshotAdapter(listener);
+        if (snapshotListeners.putIfAbsent(listener, adapter) == null) {
+            addCardListener(adapter);
+        }
+    }
+
+    /**
+     * Remove snapshot listener from the list of listeners. Does nothing if the listener is
+     * not present in the list.
+     *
+     * @param listener Previously added snapshot listener object to be removed
+     * @return true if the removal succeeded; false otherwise
+     */
+    public boolean removeSnapshotListener(ReaderSnapshotListener listener) {
+        SnapshotAdapter adapter = snapshotListeners.remove(listener);
+        return adapter != null && removeCardListener(adapter);
     }
 
-    private void notifyCardListener(ReaderListener listener, boolean inserted_only) {
-        if (eidcard != null) {
-            listener.inserted(eidcard);
+    private void notifyCardListener(final ReaderListener listener, boolean inserted_only) {
+        ListenerQueue queue = queues.get(listener);
+        if (queue == null) {
+            return;
+        }
+        final EidCard card = eidcard;
+        final Prefetch prefetched = prefetch;
+        if (card != null) {
+            queue.post(new ListenerQueue.Event(ListenerQueue.Kind.INSERTED, this) {
+                public void run() {
+                    if (listener instanceof SnapshotAdapter) {
+                        ((SnapshotAdapter) listener).inserted(card, prefetched);
+                    } else {
+                        listener.inserted(card);
+                    }
+                }
+            });
         } else if (!inserted_only) {
-            listener.removed();
+            queue.post(new ListenerQueue.Event(ListenerQueue.Kind.REMOVED, this) {
+                public void run() {
+                    listener.removed();
+                }
+            });
+        }
+    }
+
+    /**
+     * Set the cache on cards inserted from now on, so the same card inserted again is not read.
+     *
+     * @param cache Cache, can be shared between readers, or null to disable caching
+     */
+    public void setCache(EidCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Set the poll interval bounds, used on buggy Java and when waitForCard* does not block.
+     *
+     * The poll interval is reset to the shortest interval when a card is inserted or
+     * removed, and doubles on every poll with no change, up to the longest interval. Shorter
+     * intervals detect the cards sooner, longer intervals cost less when idle.
+     *
+     * @param min Shortest poll interval, default DEFAULT_MIN_POLL_INTERVAL ms
+     * @param max Longest poll interval, default DEFAULT_MAX_POLL_INTERVAL ms, or
+     *     DEFAULT_BUGGY_JAVA_MAX_POLL_INTERVAL ms on buggy Java
+     * @param unit Time unit of the intervals
+     */
+    public void setPollInterval(long min, long max, TimeUnit unit) {
+        long minMs = unit.toMillis(min);
+        long maxMs = unit.toMillis(max);
+        if (minMs < 1 || maxMs < minMs) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid poll interval %d-%d ms", minMs, maxMs));
         }
+        minPollInterval = minMs;
+        maxPollInterval = maxMs;
+    }
+
+    /** Returns the card event statistics and the state of this reader. */
+    public ReaderMetrics getMetrics() {
+        return metrics;
     }
 
     public void connect() throws CardException {
         logger.info("CONNECT");
-        eidcard = EidCard.fromCard(terminal.connect("*"));
+        metrics.setState(ReaderMetrics.State.CONNECTING);
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setCache(cache);
+        // read on the card queue while the listeners are notified
+        prefetch = snapshotListeners.isEmpty() ? null : new Prefetch(card);
+        eidcard = card;
+        metrics.inserted();
     }
 
     public void disconnect() throws CardException {
         logger.info("DISCONNECT");
+        metrics.removed();
+        Prefetch prefetched = prefetch;
+        if (prefetched != null) {
+            prefetched.cancel();
+        }
+        prefetch = null;
         eidcard.disconnect();
         eidcard = null;
     }
@@ -233,7 +552,7 @@ public class Reader {
      *
      *All should be fixed in JRE 7u80, 8u20, and 9
      */
-    private boolean isMacWithBuggyJava() {
+    static boolean isMacWithBuggyJava() {
         final String os = System.getProperty("os.name").toLowerCase();
         final String version = System.getProperty("java.version");
 
@@ -244,6 +563,12 @@ public class Reader {
     }
 
     private synchronized boolean isCardPresent(boolean buggyJava) throws CardException {
+        metrics.probed();
+        return isCardPresent(terminal, buggyJava);
+    }
+
+    /** Checks the card presence, by connecting to the card on buggy Java */
+    static boolean isCardPresent(CardTerminal terminal, boolean buggyJava) throws CardException {
         if (!buggyJava) return terminal.isCardPresent();
 
 	    try {
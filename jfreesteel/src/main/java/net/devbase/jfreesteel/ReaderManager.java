@@ -0,0 +1,495 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ReaderManager watches all terminals of a CardTerminals with a single thread, and provides
+ * an interface for your code to receive card insertion/removal events from any of them.
+ *
+ * Unlike the Reader, that runs a thread per terminal, the manager waits for a change in any
+ * terminal with CardTerminals.waitForChange(). Terminals plugged in or unplugged while the
+ * manager is running are picked up within the hot-plug interval. The manager thread is a
+ * daemon thread, call close() to stop it and disconnect the cards.
+ *
+ * Listeners are notified on their own, on ListenerExecutors.newDefault() by default, and
+ * never while the manager is locked. Pass ListenerExecutors.DIRECT to the constructor to
+ * notify the listeners on the manager thread, where a slow listener delays the events of
+ * all terminals.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * try (ReaderManager manager = new ReaderManager(TerminalFactory.getDefault().terminals())) {
+ *     manager.addListener(listener);
+ *     ...
+ * }
+ * }
+ * </pre>
+ *
+ * Manager will ignore cards with an unknown ATR.
+ */
+@SuppressWarnings("restriction")  // Various javax.smartcardio.*
+public class ReaderManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReaderManager.class);
+
+    /** Default interval to check for the terminals plugged in or unplugged, in ms */
+    public static final long DEFAULT_HOTPLUG_INTERVAL = 1000;
+
+    public interface ReaderManagerListener {
+        /** Terminal is plugged in, or was present when the listener was added */
+        public void terminalAdded(CardTerminal terminal);
+
+        /** Terminal is unplugged, removed() is called first if there was a card inside */
+        public void terminalRemoved(CardTerminal terminal);
+
+        /**
+         * Card is inserted into the terminal. Use EidCard object to read data from the
+         * eID card.
+         */
+        public void inserted(CardTerminal terminal, EidCard card);
+
+        /** Card is removed from the terminal */
+        public void removed(CardTerminal terminal);
+    }
+
+    /** Terminal watched by the manager and the card inside, guarded by the manager */
+    private static class Slot {
+        final CardTerminal terminal;
+        EidCard card = null;
+        boolean wrongCard = false;
+
+        Slot(CardTerminal terminal) {
+            this.terminal = terminal;
+        }
+    }
+
+    private final CardTerminals terminals;
+    private final long hotplugInterval;
+
+    /** Watched terminals by name, in the order listed */
+    private final Map<String, Slot> slots = new LinkedHashMap<String, Slot>();
+
+    private final CopyOnWriteArrayList<ReaderManagerListener> listeners =
+            new CopyOnWriteArrayList<ReaderManagerListener>();
+
+    /** Events waiting for each listener */
+    private final ConcurrentMap<ReaderManagerListener, ListenerQueue> queues =
+            new ConcurrentHashMap<ReaderManagerListener, ListenerQueue>();
+
+    /** Executor notifying the listeners */
+    private final Executor listenerExecutor;
+
+    /** Executor created by the manager, shut down on close, or null */
+    private final ExecutorService ownExecutor;
+
+    /** Listener notification waiting to be posted */
+    private static class Posting {
+        final ReaderManagerListener listener;
+        final ListenerQueue.Event event;
+
+        Posting(ReaderManagerListener listener, ListenerQueue.Event event) {
+            this.listener = listener;
+            this.event = event;
+        }
+    }
+
+    /** Events collected under the manager lock, posted in order after it, guarded by this */
+    private final ArrayDeque<Posting> outbox = new ArrayDeque<Posting>();
+
+    /** Held while posting the events, so they reach the listener queues in order */
+    private final Object postLock = new Object();
+
+    private final Thread watcherThread;
+    private volatile boolean closed = false;
+
+    /** Cache set on every inserted card, null if disabled */
+    private volatile EidCache cache;
+
+    public ReaderManager(final CardTerminals terminals) {
+        this(terminals, DEFAULT_HOTPLUG_INTERVAL);
+    }
+
+    /**
+     * Notifies the listeners on ListenerExecutors.newDefault(), shut down on close().
+     *
+     * @param terminals Terminals to watch, e.g. TerminalFactory.getDefault().terminals()
+     * @param hotplugInterval Longest time to pick up a terminal plugged in or unplugged, in ms
+     */
+    public ReaderManager(final CardTerminals terminals, long hotplugInterval) {
+        this(terminals, hotplugInterval, ListenerExecutors.newDefault(), true);
+    }
+
+    /**
+     * @param terminals Terminals to watch, e.g. TerminalFactory.getDefault().terminals()
+     * @param hotplugInterval Longest time to pick up a terminal plugged in or unplugged, in ms
+     * @param listenerExecutor Executor notifying the listeners, e.g.
+     *     ListenerExecutors.newDefault()
+     */
+    public ReaderManager(final CardTerminals terminals, long hotplugInterval,
+            Executor listenerExecutor) {
+        this(terminals, hotplugInterval, listenerExecutor, false);
+    }
+
+    private ReaderManager(final CardTerminals terminals, long hotplugInterval,
+            Executor listenerExecutor, boolean ownExecutor) {
+        if (hotplugInterval <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid hot-plug interval %d", hotplugInterval));
+        }
+        this.terminals = terminals;
+        this.hotplugInterval = hotplugInterval;
+        this.listenerExecutor = listenerExecutor;
+        this.ownExecutor = ownExecutor ? (ExecutorService) listenerExecutor : null;
+
+        watcherThread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "jfreesteel-reader-manager");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Add new listener to be notified on terminal and card changes. The listener is notified
+     * about the terminals already watched and the cards already inserted.
+     */
+    public void addListener(ReaderManagerListener listener) {
+        synchronized (this) {
+            if (!queues.containsKey(listener)) {
+                queues.put(listener, new ListenerQueue(listenerExecutor));
+            }
+            listeners.add(listener);
+            for (Slot slot : slots.values()) {
+                dispatchAdded(listener, slot.terminal);
+                if (slot.card != null) {
+                    dispatchInserted(listener, slot.terminal, slot.card);
+                }
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Remove listener from the list of listeners. Does nothing if the listener is not present
+     * in the list.
+     *
+     * @return true if the removal succeeded; false otherwise
+     */
+    public synchronized boolean removeListener(ReaderManagerListener listener) {
+        boolean removed = listeners.remove(listener);
+        if (!listeners.contains(listener)) {
+            queues.remove(listener);
+        }
+        return removed;
+    }
+
+    /** Returns the terminals currently watched. */
+    public synchronized List<CardTerminal> getTerminals() {
+        List<CardTerminal> out = new ArrayList<CardTerminal>();
+        for (Slot slot : slots.values()) {
+            out.add(slot.terminal);
+        }
+        return out;
+    }
+
+    /** Returns the eID card inserted in the terminal, or null if there is none. */
+    public synchronized EidCard getCard(CardTerminal terminal) {
+        Slot slot = slots.get(terminal.getName());
+        return slot == null ? null : slot.card;
+    }
+
+    /**
+     * Set the cache on cards inserted from now on, so the same card inserted again is not read.
+     *
+     * @param cache Cache, can be shared between managers and readers, or null to disable caching
+     */
+    public void setCache(EidCache cache) {
+        this.cache = cache;
+    }
+
+    public boolean isRunning() {
+        return watcherThread.isAlive();
+    }
+
+    /**
+     * Stops the watcher thread and disconnects the cards, without notifying the listeners.
+     *
+     * Waits at most the hot-plug interval for the thread to stop, as some PC/SC
+     * implementations can not interrupt waitForChange().
+     */
+    public void close() {
+        closed = true;
+        watcherThread.interrupt();
+        if (Thread.currentThread() != watcherThread) {
+            try {
+                watcherThread.join(2 * hotplugInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            for (Slot slot : slots.values()) {
+                if (slot.card != null) {
+                    disconnect(slot);
+                }
+            }
+            slots.clear();
+            outbox.clear();
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /** Watcher thread loop */
+    private void watch() {
+        logger.info("Init ReaderManager");
+        boolean buggyJava = Reader.isMacWithBuggyJava();
+        if (buggyJava) {
+            logger.info("Working with buggy Java, polling the terminals");
+        }
+
+        // poll with the backoff of the Reader on buggy Java, within the hot-plug interval
+        long maxPollInterval =
+                Math.min(hotplugInterval, Reader.DEFAULT_BUGGY_JAVA_MAX_POLL_INTERVAL);
+        long minPollInterval = Math.min(maxPollInterval, Reader.DEFAULT_MIN_POLL_INTERVAL);
+        long pollInterval = minPollInterval;
+
+        while (!closed) {
+            try {
+                boolean changed;
+                try {
+                    changed = update(buggyJava);
+                } finally {
+                    flush();
+                }
+                if (buggyJava) {
+                    // waitForChange does not wait
+                    Thread.sleep(pollInterval);
+                    pollInterval = changed
+                            ? minPollInterval : Math.min(maxPollInterval, pollInterval * 2);
+                } else {
+                    terminals.waitForChange(hotplugInterval);
+                }
+            } catch (CardException e) {
+                // no terminals, or PC/SC is not running: try again later
+                logger.info(String.format("Waiting for terminals: %s", e.getMessage()));
+                sleep();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (Thread.interrupted() && !closed) {
+                logger.info("ReaderManager interrupted");
+            }
+        }
+        logger.info("ReaderManager closed");
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(hotplugInterval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Picks up the terminals plugged in or unplugged and the cards inserted or removed. The
+     * events are left in the outbox, to be posted once the lock is released.
+     *
+     * @return true if anything changed
+     */
+    private synchronized boolean update(boolean buggyJava) throws CardException {
+        if (closed) {
+            return false;
+        }
+        boolean changed = false;
+
+        List<CardTerminal> current = terminals.list();
+        Set<String> names = new HashSet<String>();
+        for (CardTerminal terminal : current) {
+            names.add(terminal.getName());
+        }
+
+        Iterator<Slot> it = slots.values().iterator();
+        while (it.hasNext()) {
+            Slot slot = it.next();
+            if (!names.contains(slot.terminal.getName())) {
+                logger.info(String.format("Terminal %s removed", slot.terminal.getName()));
+                it.remove();
+                changed = true;
+                if (slot.card != null) {
+                    disconnect(slot);
+                    for (ReaderManagerListener listener : listeners) {
+                        dispatchRemoved(listener, slot.terminal);
+                    }
+                }
+                for (ReaderManagerListener listener : listeners) {
+                    dispatchTerminalRemoved(listener, slot.terminal);
+                }
+            }
+        }
+
+        for (CardTerminal terminal : current) {
+            Slot slot = slots.get(terminal.getName());
+            if (slot == null) {
+                logger.info(String.format("Terminal %s added", terminal.getName()));
+                slot = new Slot(terminal);
+                slots.put(terminal.getName(), slot);
+                changed = true;
+                for (ReaderManagerListener listener : listeners) {
+                    dispatchAdded(listener, terminal);
+                }
+            }
+            changed |= updateCard(slot, Reader.isCardPresent(terminal, buggyJava));
+        }
+        return changed;
+    }
+
+    /** Returns true if the card was inserted or removed */
+    private boolean updateCard(Slot slot, boolean cardPresent) {
+        if (!cardPresent) {
+            slot.wrongCard = false;
+            if (slot.card != null) {
+                logger.info(String.format("Card removed from %s", slot.terminal.getName()));
+                disconnect(slot);
+                for (ReaderManagerListener listener : listeners) {
+                    dispatchRemoved(listener, slot.terminal);
+                }
+                return true;
+            }
+        } else if (slot.card == null && !slot.wrongCard) {
+            try {
+                EidCard card = EidCard.fromCard(slot.terminal.connect("*"));
+                card.setCache(cache);
+                slot.card = card;
+            } catch (IllegalArgumentException e) {
+                logger.info(String.format("Wrong card in %s", slot.terminal.getName()));
+                slot.wrongCard = true;
+                return false;
+            } catch (CardException e) {
+                // card is not ready or removed already, retry on the next change
+                logger.info(String.format("Connect to %s failed: %s",
+                        slot.terminal.getName(), e.getMessage()));
+                return false;
+            }
+            logger.info(String.format("Card inserted into %s", slot.terminal.getName()));
+            for (ReaderManagerListener listener : listeners) {
+                dispatchInserted(listener, slot.terminal, slot.card);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void disconnect(Slot slot) {
+        try {
+            slot.card.disconnect();
+        } catch (CardException e) {
+            // card is gone already
+        }
+        slot.card = null;
+    }
+
+    private void dispatchAdded(final ReaderManagerListener listener,
+            final CardTerminal terminal) {
+        post(listener, new ListenerQueue.Event(ListenerQueue.Kind.OTHER, terminal.getName()) {
+            public void run() {
+                listener.terminalAdded(terminal);
+            }
+        });
+    }
+
+    private void dispatchTerminalRemoved(final ReaderManagerListener listener,
+            final CardTerminal terminal) {
+        post(listener, new ListenerQueue.Event(ListenerQueue.Kind.OTHER, terminal.getName()) {
+            public void run() {
+                listener.terminalRemoved(terminal);
+            }
+        });
+    }
+
+    private void dispatchInserted(final ReaderManagerListener listener,
+            final CardTerminal terminal, final EidCard card) {
+        post(listener, new ListenerQueue.Event(ListenerQueue.Kind.INSERTED, terminal.getName()) {
+            public void run() {
+                listener.inserted(terminal, card);
+            }
+        });
+    }
+
+    private void dispatchRemoved(final ReaderManagerListener listener,
+            final CardTerminal terminal) {
+        post(listener, new ListenerQueue.Event(ListenerQueue.Kind.REMOVED, terminal.getName()) {
+            public void run() {
+                listener.removed(terminal);
+            }
+        });
+    }
+
+    /** Collects the event for the listener, called with the manager locked */
+    private void post(ReaderManagerListener listener, ListenerQueue.Event event) {
+        outbox.add(new Posting(listener, event));
+    }
+
+    /**
+     * Posts the collected events to the listener queues, called with the manager unlocked, so
+     * listeners notified on this thread can call the manager.
+     */
+    private void flush() {
+        synchronized (postLock) {
+            while (true) {
+                Posting posting;
+                synchronized (this) {
+                    posting = outbox.poll();
+                }
+                if (posting == null) {
+                    return;
+                }
+                ListenerQueue queue = queues.get(posting.listener);
+                if (queue != null) {
+                    queue.post(posting.event);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Card event statistics and the state of a Reader, exportable via JMX.
+ *
+ * Each Reader keeps its own metrics, get them with Reader.getMetrics(). Register the
+ * metrics of all readers to watch the readers on many desks from the monitoring and
+ * to catch the readers stuck in the polling fallback.
+ */
+public class ReaderMetrics implements ReaderMetricsMXBean {
+
+    /** Reader thread state */
+    public enum State {
+        /** Reader thread is starting */
+        STARTING,
+        /** Waiting for the card to be inserted */
+        WAITING_FOR_INSERTION,
+        /** Waiting for the card to be removed */
+        WAITING_FOR_REMOVAL,
+        /** Connecting to the inserted card */
+        CONNECTING,
+        /** Polling the card presence, on buggy Java */
+        POLLING,
+        /** Reader thread has stopped after a repeated error */
+        STOPPED
+    }
+
+    private final String terminalName;
+    private final Collection<?> listeners;
+
+    private volatile State state = State.STARTING;
+    private volatile boolean buggyJava = false;
+    private volatile boolean timeoutFallback = false;
+    private volatile String lastError = null;
+    private volatile long pollInterval = 0;
+
+    private final AtomicLong insertions = new AtomicLong();
+    private final AtomicLong removals = new AtomicLong();
+    private final AtomicLong wrongCards = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong cardErrors = new AtomicLong();
+    private final AtomicLong presenceProbes = new AtomicLong();
+    private final AtomicLong insertionWaitNanos = new AtomicLong();
+    private final AtomicLong removalWaitNanos = new AtomicLong();
+    private final EidCardMetrics.Histogram dispatchLatency = new EidCardMetrics.Histogram();
+
+    private ObjectName objectName;
+
+    ReaderMetrics(String terminalName, Collection<?> listeners) {
+        this.terminalName = terminalName;
+        this.listeners = listeners;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void setBuggyJava(boolean buggyJava) {
+        this.buggyJava = buggyJava;
+    }
+
+    void setTimeoutFallback(boolean timeoutFallback) {
+        this.timeoutFallback = timeoutFallback;
+    }
+
+    void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    void probed() {
+        presenceProbes.incrementAndGet();
+    }
+
+    void inserted() {
+        insertions.incrementAndGet();
+    }
+
+    void removed() {
+        removals.incrementAndGet();
+    }
+
+    void wrongCard() {
+        wrongCards.incrementAndGet();
+    }
+
+    void reconnect() {
+        reconnects.incrementAndGet();
+    }
+
+    void cardError(Exception e) {
+        cardErrors.incrementAndGet();
+        lastError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    void waitedForInsertion(long nanos) {
+        insertionWaitNanos.addAndGet(nanos);
+    }
+
+    void waitedForRemoval(long nanos) {
+        removalWaitNanos.addAndGet(nanos);
+    }
+
+    void dispatched(long nanos) {
+        dispatchLatency.record(nanos, 1);
+    }
+
+    public String getTerminalName() {
+        return terminalName;
+    }
+
+    public String getState() {
+        return state.name();
+    }
+
+    public boolean isBuggyJavaPolling() {
+        return buggyJava;
+    }
+
+    public boolean isTimeoutFallback() {
+        return timeoutFallback;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollInterval;
+    }
+
+    public long getPresenceProbes() {
+        return presenceProbes.get();
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    public long getRemovals() {
+        return removals.get();
+    }
+
+    public long getWrongCards() {
+        return wrongCards.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    public long getCardErrors() {
+        return cardErrors.get();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public long getTimeWaitingForInsertionMillis() {
+        return insertionWaitNanos.get() / 1000000;
+    }
+
+    public long getTimeWaitingForRemovalMillis() {
+        return removalWaitNanos.get() / 1000000;
+    }
+
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
+    public EidCardMetrics.Latency getDispatchLatency() {
+        return dispatchLatency.snapshot();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, as
+     * "net.devbase.jfreesteel:type=Reader,name=[terminal name]".
+     */
+    public synchronized ObjectName register() throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("Already registered as " + objectName);
+        }
+        ObjectName object = new ObjectName(String.format(
+                "net.devbase.jfreesteel:type=Reader,name=%s", ObjectName.quote(terminalName)));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, object);
+        objectName = object;
+        return object;
+    }
+
+    /** Unregisters the metrics from the platform MBean server, if registered. */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import net.devbase.jfreesteel.EidCardMetrics.Latency;
+
+/**
+ * JMX interface of ReaderMetrics.
+ */
+public interface ReaderMetricsMXBean {
+
+    String getTerminalName();
+
+    /** Current state of the Reader thread, see ReaderMetrics.State */
+    String getState();
+
+    /** True if the Reader is polling the card because of JDK bug #7195480 */
+    boolean isBuggyJavaPolling();
+
+    /** True if waitForCard* did not block and the Reader fell back to polling */
+    boolean isTimeoutFallback();
+
+    /** Current poll interval, 0 while waitForCard* is blocking */
+    long getPollIntervalMillis();
+
+    /** Number of card presence checks, a measure of the idle cost */
+    long getPresenceProbes();
+
+    long getInsertions();
+
+    long getRemovals();
+
+    long getWrongCards();
+
+    long getReconnects();
+
+    long getCardErrors();
+
+    /** Last CardException message, or null */
+    String getLastError();
+
+    long getTimeWaitingForInsertionMillis();
+
+    long getTimeWaitingForRemovalMillis();
+
+    int getListenerCount();
+
+    /** Time from a card event to each listener returning, including the wait in its queue */
+    Latency getDispatchLatency();
+}
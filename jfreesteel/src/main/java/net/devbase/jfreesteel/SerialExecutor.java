@@ -0,0 +1,84 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the tasks one at a time and in order, on the threads of the backing executor.
+ *
+ * If the backing executor rejects a task, the task and the tasks waiting after it are
+ * dropped, failing the EidFutures among them with the RejectedExecutionException. Tasks
+ * executed later are passed to the backing executor again.
+ */
+class SerialExecutor implements Executor {
+
+    private final Executor executor;
+
+    /** Tasks not started yet, guarded by this */
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+    /** Task running on the backing executor, null if idle, guarded by this */
+    private Runnable active = null;
+
+    SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public synchronized void execute(final Runnable task) {
+        tasks.add(task);
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        final Runnable task = tasks.poll();
+        active = task;
+        if (task == null) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            active = null;
+            List<Runnable> rejected = new ArrayList<Runnable>(tasks.size() + 1);
+            rejected.add(task);
+            rejected.addAll(tasks);
+            tasks.clear();
+            for (Runnable each : rejected) {
+                if (each instanceof EidFuture) {
+                    ((EidFuture<?>) each).fail(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.devbase.jfreesteel.EidInfo.Tag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Translates raw TLV tag codes found in one of the card files into EidInfo tags.
+ *
+ * Tag codes are dense, so the mapping is kept in an array indexed by the code offset from
+ * the lowest registered code. A lookup is a bounds check and an array load.
+ *
+ * New card generations can register additional codes at any time, the table is replaced on
+ * write and readers always see a consistent copy. Unknown codes found on cards are counted,
+ * and each one is logged the first time it is seen.
+ */
+public class TagMapper {
+
+    private final static Logger logger = LoggerFactory.getLogger(TagMapper.class);
+
+    /** Immutable lookup table, replaced as a whole on registration */
+    private static class Table {
+        final int base;
+        final Tag[] tags;
+
+        Table(int base, Tag[] tags) {
+            this.base = base;
+            this.tags = tags;
+        }
+    }
+
+    private final String name;
+    private volatile Table table = new Table(0, new Tag[0]);
+    private final ConcurrentMap<Integer, AtomicLong> unknownTags =
+            new ConcurrentHashMap<Integer, AtomicLong>();
+
+    /**
+     * @param name File name used when reporting unknown tags, e.g. "DOCUMENT"
+     */
+    public TagMapper(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Registers EidInfo tag for the raw TLV code, replacing any previous mapping.
+     *
+     * @param code Raw TLV tag code, unsigned 16-bit number
+     * @param tag EidInfo tag; use {@code Tag.NULL} if the code should be silently ignored
+     * @return this mapper
+     */
+    public synchronized TagMapper register(int code, Tag tag) {
+        if (code < 0 || code > 0xFFFF) {
+            throw new IllegalArgumentException(String.format("Invalid tag code %d", code));
+        }
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag is null, use Tag.NULL to ignore the code");
+        }
+
+        Table current = table;
+        int base = current.base;
+        int length = current.tags.length;
+        if (length == 0) {
+            base = code;
+            length = 1;
+        } else if (code < base) {
+            length += base - code;
+            base = code;
+        } else if (code >= base + length) {
+            length = code - base + 1;
+        }
+
+        Tag[] tags = new Tag[length];
+        if (current.tags.length > 0) {
+            System.arraycopy(current.tags, 0, tags, current.base - base, current.tags.length);
+        }
+        tags[code - base] = tag;
+        table = new Table(base, tags);
+        return this;
+    }
+
+    /** Returns EidInfo tag for the raw TLV code, or null if the code is not known. */
+    public Tag get(int code) {
+        Table current = table;
+        int index = code - current.base;
+        if (index < 0 || index >= current.tags.length) {
+            return null;
+        }
+        return current.tags[index];
+    }
+
+    /** Returns true if any raw TLV code is mapped to the EidInfo tag. */
+    public boolean contains(Tag tag) {
+        for (Tag mapped : table.tags) {
+            if (mapped == tag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts an unknown code found on a card. The first time the code is seen, it is logged
+     * together with its value so users can report it.
+     */
+    public void recordUnknown(int code, byte[] buffer, int offset, int length) {
+        AtomicLong counter = unknownTags.get(code);
+        if (counter == null) {
+            AtomicLong previous = unknownTags.putIfAbsent(code, counter = new AtomicLong());
+            if (previous != null) {
+                counter = previous;
+            } else {
+                byte[] value = new byte[length];
+                System.arraycopy(buffer, offset, value, 0, length);
+                logger.error(String.format(
+                        "Unknown tag found on a card. Please send this info to " +
+                        "<grakic@devbase.net> and contribute to the development.\n" +
+                        "%s:\n%d = %s (%s)", name, code,
+                        Utils.bytes2UTF8String(value), Utils.bytes2HexString(value)));
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /** Returns how many times each unknown code was found on the cards, sorted by code. */
+    public SortedMap<Integer, Long> getUnknownTagCounts() {
+        SortedMap<Integer, Long> counts = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, AtomicLong> entry : unknownTags.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+}
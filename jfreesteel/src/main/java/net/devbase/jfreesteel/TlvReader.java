@@ -0,0 +1,150 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+/**
+ * Flyweight reader walking a TLV encoded eID file in place.
+ *
+ * Encoding is a repeated sequence of a tag and a length, both as unsigned little-endian
+ * 16-bit numbers, followed by as many data bytes as determined by length. Same as with
+ * EidCard.parseTlv(), up to four trailing bytes that can not hold a tag and a length are
+ * ignored.
+ *
+ * The reader does not copy any data. After each successful call to next(), the current entry
+ * is exposed as a tag and an offset and a length of the value in the original buffer.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * TlvReader tlv = new TlvReader(bytes);
+ * while (tlv.next()) {
+ *     process(tlv.tag(), tlv.buffer(), tlv.valueOffset(), tlv.valueLength());
+ * }
+ * }
+ * </pre>
+ */
+public class TlvReader {
+
+    private final byte[] bytes;
+    private final int start;
+    private final int end;
+
+    private int position;
+    private int tag = -1;
+    private int valueOffset;
+    private int valueLength;
+
+    public TlvReader(final byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads entries from the range of the buffer.
+     *
+     * @throws IllegalArgumentException if the range is outside of the buffer
+     */
+    public TlvReader(final byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IllegalArgumentException(String.format(
+                    "Range outside of the buffer: offset=%d, length=%d, buffer=%d",
+                    offset, length, bytes.length));
+        }
+        this.bytes = bytes;
+        this.start = offset;
+        this.end = offset + length;
+        this.position = offset;
+    }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return true if there is an entry, false at the end of data
+     * @throws IllegalArgumentException if the entry length runs past the end of data
+     */
+    public boolean next() {
+        if (end - position <= 4) {
+            position = end;
+            tag = -1;
+            return false;
+        }
+
+        int entryTag = (bytes[position] & 0xFF) | ((bytes[position + 1] & 0xFF) << 8);
+        int entryLength = (bytes[position + 2] & 0xFF) | ((bytes[position + 3] & 0xFF) << 8);
+        if (entryLength > end - position - 4) {
+            throw new IllegalArgumentException(String.format(
+                    "Truncated TLV entry: tag=%d, length=%d, offset=%d, remaining=%d",
+                    entryTag, entryLength, position - start, end - position - 4));
+        }
+
+        tag = entryTag;
+        valueOffset = position + 4;
+        valueLength = entryLength;
+        position = valueOffset + valueLength;
+        return true;
+    }
+
+    /** Moves back before the first entry. */
+    public void reset() {
+        position = start;
+        tag = -1;
+    }
+
+    /** Returns the tag of the current entry. */
+    public int tag() {
+        checkEntry();
+        return tag;
+    }
+
+    /** Returns the offset of the current entry value in the buffer. */
+    public int valueOffset() {
+        checkEntry();
+        return valueOffset;
+    }
+
+    /** Returns the length of the current entry value. */
+    public int valueLength() {
+        checkEntry();
+        return valueLength;
+    }
+
+    /** Returns the underlying buffer, not a copy. */
+    public byte[] buffer() {
+        return bytes;
+    }
+
+    /** Returns a copy of the current entry value. */
+    public byte[] value() {
+        checkEntry();
+        byte[] value = new byte[valueLength];
+        System.arraycopy(bytes, valueOffset, value, 0, valueLength);
+        return value;
+    }
+
+    /** Decodes the current entry value as an UTF-8 string. */
+    public String valueAsString() {
+        checkEntry();
+        return Utils.bytes2UTF8String(bytes, valueOffset, valueLength);
+    }
+
+    private void checkEntry() {
+        if (tag < 0) {
+            throw new IllegalStateException("No current TLV entry, call next() first");
+        }
+    }
+}
@@ -170,6 +170,31 @@ public class Utils {
         }
     }
 
+    /**
+     * Interprets a range of an array of bytes as an UTF-8 string, without copying the range.
+     * <p>
+     * Failing that, interprets as ISO-8859-1 or return a hex string.
+     *
+     * @param bytes the buffer holding the bytes to convert to string
+     * @param offset index of the first byte to convert
+     * @param length number of bytes to convert
+     */
+    public static String bytes2UTF8String(byte[] bytes, int offset, int length) {
+        try {
+            return new String(bytes, offset, length, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            log.warn("Could not convert bytes to UTF-8", ex);
+        }
+        try {
+            return new String(bytes, offset, length, "ISO-8859-1");
+        } catch (UnsupportedEncodingException ex) {
+            log.warn("Could not convert bytes to ISO-8859-1", ex);
+        }
+        byte[] range = new byte[length];
+        System.arraycopy(bytes, offset, range, 0, length);
+        return bytes2HexString(range);
+    }
+
     private static byte asByte(int value) {
         return (byte) (value & 0xFF);
     }
@@ -207,6 +232,19 @@ public class Utils {
         return i == bytes.length;
     }    
 
+    /**
+     * Encodes bytes as a Base64 string, e.g. the photo as read by EidCard.readEidPhotoBytes().
+     */
+    public static String bytes2Base64String(byte[] bytes) {
+        return DatatypeConverter.printBase64Binary(bytes);
+    }
+
+    /**
+     * Encodes the image as JPEG and returns it as a Base64 string.
+     * <p>
+     * Decoding and encoding the photo again degrades the quality, prefer using
+     * bytes2Base64String() with the photo bytes as read from the card.
+     */
     public static String image2Base64String(Image image) {
         BufferedImage bufferedImage = new BufferedImage(
                 image.getWidth(null), image.getHeight(null),
@@ -17,14 +17,11 @@
  */
 package net.devbase.jfreesteel.sample;
 
-import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.util.List;
 import java.util.Scanner;
 
-import javax.imageio.ImageIO;
 import javax.smartcardio.Card;
 import javax.smartcardio.CardException;
 import javax.smartcardio.CardTerminal;
@@ -73,17 +70,6 @@ public class JFreesteel {
         }
     }
 
-	private static BufferedImage toBufferedImage(Image src) {
-	    int w = src.getWidth(null);
-	    int h = src.getHeight(null);
-	    int type = BufferedImage.TYPE_INT_RGB; // other options
-	    BufferedImage dest = new BufferedImage(w, h, type);
-	    Graphics2D g2 = dest.createGraphics();
-	    g2.drawImage(src, 0, 0, null);
-	    g2.dispose();
-	    return dest;
-	}
-
     public static void main(String[] args) {
         CardTerminal terminal = null;
 
@@ -123,9 +109,14 @@ public class JFreesteel {
             String addressDate = info.getAddressDate();
             System.out.format("Address date   : %s\n", addressDate == null ? "n/a" : addressDate);
 
-            Image photo = eidcard.readEidPhoto();
+            byte[] photo = eidcard.readEidPhotoBytes();
             File filename = File.createTempFile("eidphoto",".jpg");
-            ImageIO.write(toBufferedImage(photo), "jpg", filename);
+            FileOutputStream out = new FileOutputStream(filename);
+            try {
+                out.write(photo);
+            } finally {
+                out.close();
+            }
             System.out.format("\neID Photo      : %s", filename);
 
         } catch (Exception e) {
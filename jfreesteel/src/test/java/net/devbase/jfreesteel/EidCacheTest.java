@@ -0,0 +1,148 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+package net.devbase.jfreesteel;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.crypto.spec.SecretKeySpec;
+
+public class EidCacheTest extends EidTestCase {
+
+    private static final byte[] ATR = Utils.asByteArray(0x3b, 0xb9, 0x18);
+    private static final byte[] RESIDENCE = Utils.asByteArray(0x20, 0x06, 0x03, 0x00, 'S', 'R', 'B');
+
+    private File directory;
+
+    @Override
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("eidcache").toFile();
+    }
+
+    @Override
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private EidSnapshot snapshot(String docRegNo) throws Exception {
+        byte[] document = Utils.asByteArray(0x0a, 0x06, 0x04, 0x00);
+        document = Arrays.copyOf(document, 8);
+        System.arraycopy(docRegNo.getBytes("UTF-8"), 0, document, 4, 4);
+        byte[] personal = Utils.asByteArray(0x17, 0x06, 0x02, 0x00, 'P', 'P');
+        return new EidSnapshot(EidCard.parseEidInfo(document, personal, RESIDENCE),
+                Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9), document, personal, RESIDENCE);
+    }
+
+    private SecretKeySpec key(int seed) {
+        byte[] key = new byte[16];
+        Arrays.fill(key, (byte) seed);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    public void testGet_residenceChanged() throws Exception {
+        EidCache cache = new EidCache(10);
+        EidSnapshot snapshot = snapshot("1000");
+        cache.put(new EidCache.Key(ATR, "1000"), snapshot);
+
+        assertSame(snapshot, cache.get(new EidCache.Key(ATR, "1000"), RESIDENCE));
+        // same length, different address
+        assertNull(cache.get(new EidCache.Key(ATR, "1000"),
+                Utils.asByteArray(0x20, 0x06, 0x03, 0x00, 'B', 'I', 'H')));
+        assertNull(cache.get(new EidCache.Key(ATR, "2000"), RESIDENCE));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testGetPhotoBytes() throws Exception {
+        EidCache cache = new EidCache(10);
+        cache.put(new EidCache.Key(ATR, "1000"), snapshot("1000"));
+
+        assertTrue(Arrays.equals(Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9),
+                cache.getPhotoBytes(new EidCache.Key(ATR, "1000"))));
+        assertNull(cache.getPhotoBytes(new EidCache.Key(ATR, "2000")));
+    }
+
+    public void testEviction() throws Exception {
+        EidCache cache = new EidCache(2);
+        cache.put(new EidCache.Key(ATR, "1000"), snapshot("1000"));
+        cache.put(new EidCache.Key(ATR, "2000"), snapshot("2000"));
+        cache.get(new EidCache.Key(ATR, "1000"), RESIDENCE);
+        cache.put(new EidCache.Key(ATR, "3000"), snapshot("3000"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(new EidCache.Key(ATR, "1000"), RESIDENCE));
+        assertNull(cache.get(new EidCache.Key(ATR, "2000"), RESIDENCE));
+    }
+
+    public void testDisk() throws Exception {
+        EidCache.Key key = new EidCache.Key(ATR, "1000");
+        new EidCache(10, directory, key(1)).put(key, snapshot("1000"));
+        assertEquals(1, directory.listFiles().length);
+        assertFalse(new String(Files.readAllBytes(directory.listFiles()[0].toPath()), "ISO-8859-1")
+                .contains("SRB"));
+
+        EidSnapshot loaded = new EidCache(10, directory, key(1)).get(key, RESIDENCE);
+        assertNotNull(loaded);
+        assertEquals("1000", loaded.getInfo().getDocRegNo());
+        assertEquals("SRB", loaded.getInfo().getState());
+        assertTrue(Arrays.equals(Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9),
+                loaded.getPhotoBytes()));
+
+        assertNull(new EidCache(10, directory, key(1)).get(key,
+                Utils.asByteArray(0x20, 0x06, 0x03, 0x00, 'B', 'I', 'H')));
+    }
+
+    public void testDisk_wrongKey() throws Exception {
+        EidCache.Key key = new EidCache.Key(ATR, "1000");
+        new EidCache(10, directory, key(1)).put(key, snapshot("1000"));
+
+        assertNull(new EidCache(10, directory, key(2)).get(key, RESIDENCE));
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    public void testDisk_tampered() throws Exception {
+        EidCache.Key key = new EidCache.Key(ATR, "1000");
+        new EidCache(10, directory, key(1)).put(key, snapshot("1000"));
+
+        RandomAccessFile file = new RandomAccessFile(directory.listFiles()[0], "rw");
+        try {
+            file.seek(20);
+            int value = file.read();
+            file.seek(20);
+            file.write(value ^ 0x01);
+        } finally {
+            file.close();
+        }
+
+        assertNull(new EidCache(10, directory, key(1)).get(key, RESIDENCE));
+    }
+
+    public void testClear() throws Exception {
+        EidCache cache = new EidCache(10, directory, key(1));
+        cache.put(new EidCache.Key(ATR, "1000"), snapshot("1000"));
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, directory.listFiles().length);
+    }
+}
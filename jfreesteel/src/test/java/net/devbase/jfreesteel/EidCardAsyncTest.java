@@ -0,0 +1,266 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidCardAsyncTest extends TestCase {
+
+    private VirtualCardTerminal terminal;
+    private EidCard card;
+
+    @Override
+    public void setUp() throws Exception {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        card = EidCard.fromCard(terminal.connect("*"));
+    }
+
+    public void testReadAllAsync() throws Exception {
+        EidSnapshot snapshot = card.readAllAsync().get(5, TimeUnit.SECONDS);
+        assertEquals("ПЕТРОВИЋ", snapshot.getInfo().getSurname());
+        assertEquals(snapshot.getPhotoBytes().length,
+                card.readEidPhotoBytesAsync().get(5, TimeUnit.SECONDS).length);
+    }
+
+    public void testConcurrentReads() throws Exception {
+        terminal.setLatency(1, 0, TimeUnit.MILLISECONDS);
+        final List<EidFuture<EidInfo>> futures = new ArrayList<EidFuture<EidInfo>>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread() {
+                public void run() {
+                    for (int j = 0; j < 3; j++) {
+                        EidFuture<EidInfo> future = card.readEidInfoAsync();
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(12, futures.size());
+        for (EidFuture<EidInfo> future : futures) {
+            assertEquals("МАРКО", future.get(10, TimeUnit.SECONDS).getGivenName());
+        }
+    }
+
+    public void testCallback() throws Exception {
+        final BlockingQueue<Object> results = new LinkedBlockingQueue<Object>();
+        EidFuture.Callback<Object> callback = new EidFuture.Callback<Object>() {
+            public void onSuccess(Object result) {
+                results.add(result);
+            }
+
+            public void onFailure(Throwable error) {
+                results.add(error);
+            }
+        };
+        card.readEidInfoAsync().addCallback(callback);
+        assertTrue(results.poll(5, TimeUnit.SECONDS) instanceof EidInfo);
+
+        // added after completion
+        EidFuture<EidInfo> future = card.readEidInfoAsync();
+        future.get();
+        future.addCallback(callback);
+        assertTrue(results.poll() instanceof EidInfo);
+    }
+
+    public void testDeadline() throws Exception {
+        terminal.setLatency(20, 0, TimeUnit.MILLISECONDS);
+        EidFuture<EidSnapshot> slow = card.readAllAsync().setDeadline(50, TimeUnit.MILLISECONDS);
+        try {
+            slow.get(5, TimeUnit.SECONDS);
+            fail("exception expected");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+
+        // the card is still usable after the timed out read
+        terminal.setLatency(0, 0, TimeUnit.MILLISECONDS);
+        assertNotNull(card.readEidInfoAsync().get(5, TimeUnit.SECONDS));
+    }
+
+    public void testCancelQueued() throws Exception {
+        terminal.setLatency(5, 0, TimeUnit.MILLISECONDS);
+        EidFuture<EidSnapshot> first = card.readAllAsync();
+        EidFuture<EidInfo> second = card.readEidInfoAsync();
+        assertTrue(second.cancel(false));
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        try {
+            second.get();
+            fail("exception expected");
+        } catch (CancellationException expected) {
+        }
+
+        // reads queued after the cancelled one still run
+        assertNotNull(card.readEidPhotoAsync().get(5, TimeUnit.SECONDS));
+    }
+
+    public void testCancelRunning() throws Exception {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final List<String> selected = Collections.synchronizedList(new ArrayList<String>());
+        terminal.setFaultInjector(new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) {
+                if (command.getINS() == 0xA4) {
+                    byte[] name = command.getData();
+                    selected.add(String.format("%02X%02X", name[0], name[1]));
+                } else if (command.getINS() == 0xB0 && reading.getCount() > 0) {
+                    // hold the first file until the read is cancelled
+                    reading.countDown();
+                    try {
+                        cancelled.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return null;
+            }
+        });
+
+        EidFuture<EidSnapshot> all = card.readAllAsync();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        assertTrue(all.cancel(true));
+        cancelled.countDown();
+
+        // the next read runs once the cancelled one stopped, on the same card queue
+        assertNotNull(card.readEidInfoAsync().get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("0F02", "0F02", "0F04", "0F03"), selected);
+    }
+
+    /** Executor running the first task in a new thread, rejecting all the others */
+    private static class RejectingExecutor implements Executor {
+        private boolean started = false;
+
+        public synchronized void execute(Runnable task) {
+            if (started) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            started = true;
+            new Thread(task).start();
+        }
+    }
+
+    private static void assertRejected(EidFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("exception expected");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    public void testExecutorRejected() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        card.setAsyncExecutor(new RejectingExecutor());
+        EidFuture<Object> first = card.submit(new Callable<Object>() {
+            public Object call() throws InterruptedException {
+                release.await();
+                return "first";
+            }
+        });
+        EidFuture<EidInfo> queued = card.readEidInfoAsync();
+        EidFuture<EidSnapshot> another = card.readAllAsync();
+        release.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertRejected(queued);
+        assertRejected(another);
+        // not left waiting for the rejected reads
+        assertRejected(card.readEidPhotoAsync());
+    }
+
+    /** Starts the read in a new thread */
+    private static <V> FutureTask<V> start(Callable<V> read) {
+        FutureTask<V> future = new FutureTask<V>(read);
+        new Thread(future).start();
+        return future;
+    }
+
+    public void testConcurrentReadsShared() throws Exception {
+        EidCardMetrics metrics = new EidCardMetrics();
+        card.setInstrumentation(metrics);
+        terminal.setLatency(10, 0, TimeUnit.MILLISECONDS);
+
+        Callable<EidInfo> readInfo = new Callable<EidInfo>() {
+            public EidInfo call() throws CardException {
+                return card.readEidInfo();
+            }
+        };
+        FutureTask<EidInfo> first = start(readInfo);
+        Thread.sleep(30);
+        FutureTask<EidInfo> second = start(readInfo);
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(3, metrics.getFileReadCount());
+    }
+
+    public void testReadInfoJoinsReadAll() throws Exception {
+        EidCardMetrics metrics = new EidCardMetrics();
+        card.setInstrumentation(metrics);
+        terminal.setLatency(10, 0, TimeUnit.MILLISECONDS);
+
+        FutureTask<EidSnapshot> all = start(new Callable<EidSnapshot>() {
+            public EidSnapshot call() throws CardException {
+                return card.readAll();
+            }
+        });
+        Thread.sleep(30);
+        EidInfo info = card.readEidInfo();
+
+        assertSame(all.get(5, TimeUnit.SECONDS).getInfo(), info);
+        assertEquals(4, metrics.getFileReadCount());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.smartcardio.CardException;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidCardMetricsTest extends TestCase {
+
+    private VirtualCardTerminal terminal;
+    private EidCardMetrics metrics;
+
+    @Override
+    public void setUp() {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+        metrics = new EidCardMetrics();
+    }
+
+    private EidCard connect(Type type) throws CardException {
+        terminal.insert(VirtualCardImage.sample(type, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setInstrumentation(metrics);
+        return card;
+    }
+
+    public void testReadEidInfo() throws Exception {
+        EidCard card = connect(Type.APOLLO);
+        long before = terminal.getTransmitCount();
+        card.readEidInfo();
+
+        assertEquals(terminal.getTransmitCount() - before, metrics.getApduCount());
+        assertEquals(0, metrics.getFailedApduCount());
+        assertEquals(3, metrics.getFileReadCount());
+        assertEquals(Long.valueOf(metrics.getApduCount()),
+                metrics.getStatusWords().get("EidCardApollo 9000"));
+        // Lc and Le bytes are not counted
+        assertTrue(metrics.getBytesSent() + metrics.getBytesReceived()
+                <= terminal.getBytesTransferred());
+
+        assertEquals(3, metrics.getFileReadLatency().size());
+        assertEquals(1, metrics.getFileReadLatency().get("EidCardApollo 0F02").getCount());
+        long selects = metrics.getApduLatency().get("EidCardApollo SELECT").getCount();
+        long reads = metrics.getApduLatency().get("EidCardApollo READ BINARY").getCount();
+        assertEquals(metrics.getApduCount(), selects + reads);
+        assertTrue(metrics.getFileReadApdus().get("EidCardApollo 0F03") >= 2);
+    }
+
+    public void testFailedApdu() throws Exception {
+        EidCard card = connect(Type.GEMALTO);
+        card.setMaxRetries(0);
+        terminal.setFaultInjector(FaultInjector.failEvery(1));
+        try {
+            card.readEidInfo();
+            fail("exception expected");
+        } catch (CardException expected) {
+        }
+
+        assertEquals(1, metrics.getFailedApduCount());
+        assertEquals(Long.valueOf(1), metrics.getStatusWords().get("EidCardGemalto FAILED"));
+        assertEquals(0, metrics.getFileReadCount());
+    }
+
+    public void testDefaultInstrumentation() throws Exception {
+        EidCard card;
+        EidCard.setDefaultInstrumentation(metrics);
+        try {
+            terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+            card = EidCard.fromCard(terminal.connect("*"));
+        } finally {
+            EidCard.setDefaultInstrumentation(null);
+        }
+        assertSame(EidCardInstrumentation.NOOP, EidCard.getDefaultInstrumentation());
+
+        // AID is selected before the first read, not in the constructor
+        assertEquals(0, metrics.getApduCount());
+        card.readEidInfo();
+        assertEquals(terminal.getTransmitCount(), metrics.getApduCount());
+    }
+
+    public void testReset() throws Exception {
+        connect(Type.APOLLO).readEidInfo();
+        metrics.reset();
+        assertEquals(0, metrics.getApduCount());
+        assertEquals(0, metrics.getBytesReceived());
+        assertTrue(metrics.getApduLatency().isEmpty());
+        assertTrue(metrics.getStatusWords().isEmpty());
+    }
+
+    public void testJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.register("test");
+        try {
+            connect(Type.APOLLO).readEidInfo();
+            assertEquals(metrics.getApduCount(), server.getAttribute(name, "ApduCount"));
+            assertNotNull(server.getAttribute(name, "ApduLatency"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "ApduCount"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidCardProfilesTest extends TestCase {
+
+    private static EidCardProfile profile(final String name, final AtrPattern... patterns) {
+        return new EidCardProfile() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public List<AtrPattern> getAtrPatterns() {
+                return Arrays.asList(patterns);
+            }
+
+            @Override
+            public EidCard createCard(Card card) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /** Returns T=1 ATR with the historical bytes */
+    private static byte[] atr(byte[] historical) {
+        byte[] atr = new byte[historical.length + 5];
+        atr[0] = 0x3B;
+        atr[1] = (byte) (0x80 | historical.length);
+        atr[2] = (byte) 0x80;
+        atr[3] = 0x01;
+        System.arraycopy(historical, 0, atr, 4, historical.length);
+        for (int i = 1; i < atr.length - 1; i++) {
+            atr[atr.length - 1] ^= atr[i];
+        }
+        return atr;
+    }
+
+    private static byte[] atr(String historical) {
+        return atr(historical.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public void testBuiltInProfiles() {
+        EidCardProfiles profiles = EidCardProfiles.getDefault();
+        assertSame(EidCardProfiles.APOLLO, profiles.resolve(EidCardApollo.CARD_ATR));
+        assertSame(EidCardProfiles.GEMALTO, profiles.resolve(EidCardGemalto.CARD_ATR));
+        assertNull(profiles.resolve(Utils.asByteArray(0x3B, 0x00)));
+        assertNull(profiles.resolve(Arrays.copyOf(EidCardApollo.CARD_ATR, 10)));
+    }
+
+    public void testMaskedPattern() {
+        byte[] mask = new byte[EidCardGemalto.CARD_ATR.length];
+        Arrays.fill(mask, (byte) 0xFF);
+        // any chip revision in the low nibble, any check byte
+        mask[16] = (byte) 0xF0;
+        mask[mask.length - 1] = 0x00;
+
+        EidCardProfile masked = profile("masked", AtrPattern.masked(EidCardGemalto.CARD_ATR, mask));
+        EidCardProfile exact = profile("exact", AtrPattern.exact(EidCardGemalto.CARD_ATR));
+        EidCardProfiles profiles = new EidCardProfiles();
+        profiles.register(masked);
+        profiles.register(exact);
+
+        byte[] atr = EidCardGemalto.CARD_ATR.clone();
+        assertSame(exact, profiles.resolve(atr));
+        atr[16] = 0x07;
+        atr[atr.length - 1] = 0x11;
+        assertSame(masked, profiles.resolve(atr));
+        atr[16] = 0x11;
+        assertNull(profiles.resolve(atr));
+    }
+
+    public void testHistoricalPrefix() {
+        EidCardProfile eid = profile("eid",
+                AtrPattern.historicalPrefix("EID".getBytes(StandardCharsets.US_ASCII)));
+        EidCardProfile permit = profile("permit",
+                AtrPattern.historicalPrefix("EID-RP".getBytes(StandardCharsets.US_ASCII)));
+        EidCardProfiles profiles = new EidCardProfiles();
+        profiles.register(permit);
+        profiles.register(eid);
+
+        assertSame(permit, profiles.resolve(atr("EID-RP01")));
+        assertSame(eid, profiles.resolve(atr("EID-XX01")));
+        assertNull(profiles.resolve(atr("PASSPORT")));
+        assertTrue(permit.getAtrPatterns().get(0).matches(atr("EID-RP01")));
+        assertFalse(permit.getAtrPatterns().get(0).matches(atr("EID")));
+    }
+
+    public void testLaterProfileReplaces() {
+        EidCardProfile first = profile("first", AtrPattern.exact(EidCardApollo.CARD_ATR));
+        EidCardProfile second = profile("second", AtrPattern.exact(EidCardApollo.CARD_ATR));
+        EidCardProfiles profiles = new EidCardProfiles();
+        profiles.register(first);
+        profiles.register(second);
+
+        assertSame(second, profiles.resolve(EidCardApollo.CARD_ATR));
+        assertEquals(Arrays.asList(first, second), profiles.getProfiles());
+    }
+
+    public void testServiceLoader() throws Exception {
+        boolean loaded = false;
+        for (EidCardProfile profile : EidCardProfiles.getDefault().getProfiles()) {
+            loaded |= profile instanceof ResidencePermitProfile;
+        }
+        assertTrue(loaded);
+
+        IMocksControl control = EasyMock.createControl();
+        Card card = control.createMock(Card.class);
+        EasyMock.expect(card.getATR()).andStubReturn(
+                new ATR(atr(ResidencePermitProfile.HISTORICAL_BYTES)));
+        EasyMock.expect(card.getBasicChannel()).andStubReturn(
+                control.createMock(CardChannel.class));
+        control.replay();
+
+        EidCard eidcard = EidCard.fromCard(card);
+        assertTrue(eidcard instanceof EidCardApollo);
+        assertSame(ResidencePermitProfile.PLAN, eidcard.getReadPlan());
+    }
+
+    public void testVirtualCard() throws Exception {
+        VirtualCardTerminal terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+        terminal.insert(VirtualCardImage.sample(
+                atr(ResidencePermitProfile.HISTORICAL_BYTES), ReadPlan.Layout.APOLLO, null, 1));
+
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        assertTrue(card instanceof EidCardApollo);
+        assertEquals("МАРКО", card.readEidInfo().getGivenName());
+    }
+}
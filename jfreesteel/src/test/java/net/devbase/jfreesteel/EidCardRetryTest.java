@@ -0,0 +1,244 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidCardRetryTest extends TestCase {
+
+    /**
+     * Fails the READ BINARY commands with the given numbers, counting from 0, or the first
+     * READ BINARY from the given offset
+     */
+    private static class ReadFaults extends FaultInjector {
+        /** Status word by read number, 0 to fail the transmission */
+        final Map<Integer, Integer> faults = new HashMap<Integer, Integer>();
+        /** PC/SC error by read number */
+        final Map<Integer, String> errors = new HashMap<Integer, String>();
+        /** Status word by file select number */
+        final Map<Integer, Integer> selectFaults = new HashMap<Integer, Integer>();
+        int reads = 0;
+        int selects = 0;
+        int offset = -1;
+        int offsetSw;
+
+        ReadFaults fail(int read, int sw) {
+            faults.put(read, sw);
+            return this;
+        }
+
+        /** Fails the read as the Sun provider reports the PC/SC error */
+        ReadFaults fail(int read, String error) {
+            errors.put(read, error);
+            return this;
+        }
+
+        ReadFaults failSelect(int select, int sw) {
+            selectFaults.put(select, sw);
+            return this;
+        }
+
+        ReadFaults failFrom(int offset, int sw) {
+            this.offset = offset;
+            this.offsetSw = sw;
+            return this;
+        }
+
+        @Override
+        public synchronized ResponseAPDU inject(CommandAPDU command, long count)
+                throws CardException {
+            if (command.getINS() == 0xA4 && command.getP1() == 0x08) {
+                Integer sw = selectFaults.get(selects++);
+                return sw == null ? null
+                        : new ResponseAPDU(new byte[] {(byte) (sw >> 8), (byte) (sw & 0xFF)});
+            }
+            if (command.getINS() != 0xB0) {
+                return null;
+            }
+            String error = errors.get(reads);
+            if (error != null) {
+                reads++;
+                throw new CardException(new Exception(error));
+            }
+            Integer sw = faults.get(reads++);
+            if (offset >= 0 && ((command.getP1() << 8) | command.getP2()) >= offset) {
+                sw = offsetSw;
+                offset = -1;
+            }
+            if (sw == null) {
+                return null;
+            } else if (sw == 0) {
+                throw new CardException("Injected transmission failure");
+            }
+            return new ResponseAPDU(new byte[] {(byte) (sw >> 8), (byte) (sw & 0xFF)});
+        }
+    }
+
+    private VirtualCardTerminal terminal;
+
+    @Override
+    public void setUp() {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+    }
+
+    /** Reads the card, returns the snapshot and the number of APDUs */
+    private EidSnapshot readAll(Type type, FaultInjector faults) throws CardException {
+        terminal.insert(VirtualCardImage.sample(type, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.setFaultInjector(faults);
+        return card.readAll();
+    }
+
+    public void testSingleGlitchCostsOneApdu() throws Exception {
+        // the read plan learns the file sizes on the first read
+        readAll(Type.APOLLO, null);
+        long start = terminal.getTransmitCount();
+        EidSnapshot expected = EidCard.fromCard(terminal.connect("*")).readAll();
+        long apdus = terminal.getTransmitCount() - start;
+
+        // last photo data block, once extended length APDUs are known to work
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.setFaultInjector(
+                new ReadFaults().failFrom(EidCard.EXTENDED_BLOCK_SIZE, 0x6F00));
+        long before = terminal.getTransmitCount();
+        EidSnapshot snapshot = card.readAll();
+
+        assertTrue(Arrays.equals(expected.getPhotoBytes(), snapshot.getPhotoBytes()));
+        assertEquals(1, card.getRetryCount());
+        assertEquals(apdus + 1, terminal.getTransmitCount() - before);
+    }
+
+    public void testReselectAfterRepeatedErrors() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.setFaultInjector(new ReadFaults().fail(0, 0).fail(1, 0x6581));
+
+        assertEquals("ВРАЧАР", card.readAll().getInfo().getCommunity());
+        assertEquals(2, card.getRetryCount());
+    }
+
+    public void testRetriesBounded() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setMaxRetries(1);
+        terminal.setFaultInjector(new ReadFaults().fail(1, 0x6F00).fail(2, 0x6F00));
+        try {
+            card.readEidInfo();
+            fail("exception expected");
+        } catch (CardException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("6F:00"));
+        }
+        assertEquals(1, card.getRetryCount());
+    }
+
+    public void testPermanentErrorNotRetried() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.setFaultInjector(new ReadFaults().fail(0, 0x6982));
+        try {
+            card.readEidInfo();
+            fail("exception expected");
+        } catch (CardException expected) {
+        }
+        assertEquals(0, card.getRetryCount());
+    }
+
+    public void testRemovedCardNotRetried() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.setFaultInjector(new ReadFaults().fail(1, "SCARD_W_REMOVED_CARD"));
+        try {
+            card.readEidInfo();
+            fail("exception expected");
+        } catch (CardException expected) {
+        }
+        assertEquals(0, card.getRetryCount());
+    }
+
+    public void testResetReselectedOnce() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        ReadFaults faults = new ReadFaults().fail(1, "SCARD_W_RESET_CARD");
+        terminal.setFaultInjector(faults);
+
+        assertEquals("ВРАЧАР", card.readEidInfo().getCommunity());
+        assertEquals(1, card.getRetryCount());
+        // three files, and the file read when the card was reset selected again right away
+        assertEquals(4, faults.selects);
+
+        // a second reset of the same read fails it
+        terminal.setFaultInjector(new ReadFaults()
+                .fail(0, "SCARD_W_RESET_CARD").fail(1, "SCARD_W_RESET_CARD"));
+        try {
+            EidCard.fromCard(terminal.connect("*")).readEidPhotoBytes();
+            fail("exception expected");
+        } catch (CardException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("RESET"));
+        }
+    }
+
+    public void testReselectFailureRetried() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setMaxRetries(3);
+        // the second retry selects the file again, which fails once
+        terminal.setFaultInjector(new ReadFaults()
+                .fail(0, 0x6F00).fail(1, 0x6F00).failSelect(1, 0x6F00));
+
+        assertEquals("ПЕТРОВИЋ", card.readEidInfo().getSurname());
+        assertEquals(3, card.getRetryCount());
+    }
+
+    public void testReaderFailingExtendedLength() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        EidSnapshot expected = EidCard.fromCard(terminal.connect("*")).readAll();
+
+        // the reader fails to transmit READ BINARY with the extended Le
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.setFaultInjector(new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) throws CardException {
+                if (command.getINS() == 0xB0 && command.getBytes().length == 7) {
+                    throw new CardException("Injected transmission failure");
+                }
+                return null;
+            }
+        });
+        EidSnapshot snapshot = card.readAll();
+
+        assertTrue(Arrays.equals(expected.getPhotoBytes(), snapshot.getPhotoBytes()));
+        assertFalse(card.isExtendedLengthSupported());
+        assertEquals(0, card.getRetryCount());
+    }
+}
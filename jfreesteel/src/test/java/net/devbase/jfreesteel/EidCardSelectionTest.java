@@ -0,0 +1,103 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Arrays;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class EidCardSelectionTest extends TestCase {
+
+    /** Counts the SELECT commands, by application and by file */
+    private static class SelectCounter extends FaultInjector {
+        int applications = 0;
+        int files = 0;
+
+        @Override
+        public synchronized ResponseAPDU inject(CommandAPDU command, long count) {
+            if (command.getINS() == 0xA4) {
+                if (command.getP1() == 0x04) {
+                    applications++;
+                } else {
+                    files++;
+                }
+            }
+            return null;
+        }
+    }
+
+    private VirtualCardTerminal terminal;
+    private SelectCounter selects;
+
+    @Override
+    public void setUp() {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+        selects = new SelectCounter();
+        terminal.setFaultInjector(selects);
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+    }
+
+    public void testApplicationSelectedOncePerRead() throws Exception {
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        assertEquals(0, selects.applications);
+
+        EidInfo info = card.readEidInfo();
+        assertEquals(1, selects.applications);
+        assertEquals(3, selects.files);
+
+        assertEquals(info.getPersonalNumber(), card.readEidInfo().getPersonalNumber());
+        assertEquals(2, selects.applications);
+        assertEquals(6, selects.files);
+    }
+
+    public void testForeignSelectBetweenReads() throws Exception {
+        Card raw = terminal.connect("*");
+        EidCard card = EidCard.fromCard(raw);
+        byte[] photo = card.readEidPhotoBytes();
+
+        // another application selects a different file between the reads
+        raw.getBasicChannel().transmit(
+                new CommandAPDU(0x00, 0xA4, 0x08, 0x00, EidCard.DOCUMENT_FILE, 4));
+
+        assertTrue(Arrays.equals(photo, card.readEidPhotoBytes()));
+        assertEquals(2, selects.applications);
+        assertEquals(3, selects.files);
+    }
+
+    public void testTrackingDisabled() throws Exception {
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setSelectionTrackingEnabled(false);
+        card.readEidPhotoBytes();
+        card.readEidPhotoBytes();
+
+        assertEquals(2, selects.applications);
+        assertEquals(2, selects.files);
+    }
+}
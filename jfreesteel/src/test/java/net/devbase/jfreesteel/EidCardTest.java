@@ -1,5 +1,6 @@
 package net.devbase.jfreesteel;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -7,10 +8,15 @@ import javax.smartcardio.ATR;
 import javax.smartcardio.Card;
 import javax.smartcardio.CardChannel;
 import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import net.devbase.jfreesteel.EidInfo.Tag;
 
 import junit.framework.TestCase;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.easymock.IMocksControl;
 
 @SuppressWarnings("restriction") // Various javax.smartcardio.*
@@ -107,6 +113,315 @@ public class EidCardTest extends TestCase {
             control.verify();
         }
     }
+
+    public void testReadBinary_extendedLength() throws Exception {
+        expectSerbianAtr();
+        expectReadBinary(0, 1000, 0x9000, new byte[1000]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        assertEquals(1000, card.readBinary(0, 1000).length);
+        assertTrue(card.isExtendedLengthSupported());
+        control.verify();
+    }
+
+    public void testReadBinary_extendedLengthRejected() throws Exception {
+        expectSerbianAtr();
+        expectReadBinary(0, 1000, 0x6700, new byte[0]);
+        expectReadBinary(0, 500, 0x6700, new byte[0]);
+        expectReadBinary(0, 255, 0x9000, new byte[255]);
+        // no more probing once the card is known not to support extended length
+        expectReadBinary(255, 255, 0x9000, new byte[255]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        assertEquals(255, card.readBinary(0, 1000).length);
+        assertEquals(255, card.readBinary(255, 745).length);
+        assertFalse(card.isExtendedLengthSupported());
+        control.verify();
+    }
+
+    public void testReadBinary_extendedLengthProbeTransmitFailed() throws Exception {
+        expectSerbianAtr();
+        expectReadBinaryFailure(0, 1000);
+        // the reader may not transmit extended length APDUs, read on with short APDUs
+        expectReadBinary(0, 255, 0x9000, new byte[255]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        assertEquals(255, card.readBinary(0, 1000).length);
+        assertFalse(card.isExtendedLengthSupported());
+        assertEquals(0, card.getRetryCount());
+        control.verify();
+    }
+
+    public void testReadBinary_extendedLengthProbeOtherStatus() throws Exception {
+        expectSerbianAtr();
+        expectReadBinary(0, 1000, 0x6F00, new byte[0]);
+        expectReadBinary(0, 255, 0x9000, new byte[255]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        assertEquals(255, card.readBinary(0, 1000).length);
+        assertFalse(card.isExtendedLengthSupported());
+        control.verify();
+    }
+
+    public void testReadBinary_extendedLengthConfirmedTransmitFailed() throws Exception {
+        expectSerbianAtr();
+        expectReadBinary(0, 1000, 0x9000, new byte[1000]);
+        expectReadBinaryFailure(1000, 1000);
+        // repeated at the same length once extended length APDUs are known to work
+        expectReadBinary(1000, 1000, 0x9000, new byte[1000]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        assertEquals(1000, card.readBinary(0, 1000).length);
+        assertEquals(1000, card.readBinary(1000, 1000).length);
+        assertTrue(card.isExtendedLengthSupported());
+        assertEquals(1, card.getRetryCount());
+        control.verify();
+    }
+
+    public void testReadBinary_extendedLengthDisabled() throws Exception {
+        expectSerbianAtr();
+        expectReadBinary(0, 255, 0x9000, new byte[255]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        card.setExtendedLengthEnabled(false);
+        assertEquals(255, card.readBinary(0, 1000).length);
+        control.verify();
+    }
+
+    public void testReadBinaryFully() throws Exception {
+        byte[] data = new byte[300];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        expectSerbianAtr();
+        expectReadBinary(0, 300, 0x6700, new byte[0]);
+        expectReadBinary(0, 255, 0x9000, Arrays.copyOfRange(data, 0, 255));
+        expectReadBinary(255, 45, 0x9000, Arrays.copyOfRange(data, 255, 300));
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        byte[] dest = new byte[310];
+        card.readBinaryFully(0, dest, 10, 300);
+        control.verify();
+
+        assertTrue(Arrays.equals(data, Arrays.copyOfRange(dest, 10, 310)));
+    }
+
+    public void testReadBinaryFully_noData() throws Exception {
+        expectSerbianAtr();
+        expectReadBinary(0, 10, 0x9000, new byte[0]);
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        try {
+            card.readBinaryFully(0, new byte[10], 0, 10);
+            fail("exception expected");
+        } catch (CardException expected) {
+            control.verify();
+        }
+    }
+
+    public void testReadAll() throws Exception {
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, Utils.asByteArray(
+            0x0a, 0x06, 0x04, 0x00, '1', '0', '0', '0'));
+        expectApolloFile(EidCard.PERSONAL_FILE, Utils.asByteArray(
+            0x16, 0x06, 0x0d, 0x00, '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'));
+        expectApolloFile(EidCard.RESIDENCE_FILE, Utils.asByteArray(
+            0x20, 0x06, 0x03, 0x00, 'S', 'R', 'B'));
+        expectApolloFile(EidCard.PHOTO_FILE, Utils.asByteArray(
+            0x00, 0x00, 0x00, 0x00, 0xff, 0xd8, 0xff, 0xd9));
+        mockCard.endExclusive();
+
+        control.replay();
+        EidSnapshot snapshot = EidCard.fromCard(mockCard).readAll();
+        control.verify();
+
+        assertEquals("1000", snapshot.getInfo().getDocRegNo());
+        assertEquals("0000000000000", snapshot.getInfo().getPersonalNumber());
+        assertEquals("SRB", snapshot.getInfo().getState());
+        assertTrue(Arrays.equals(
+            Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9), snapshot.getPhotoBytes()));
+        assertEquals(7, snapshot.getResidenceFile().length);
+    }
+
+    public void testReadEidPhotoBytes() throws Exception {
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.PHOTO_FILE, Utils.asByteArray(
+            0x00, 0x00, 0x00, 0x00, 0xff, 0xd8, 0xff, 0xd9));
+        mockCard.endExclusive();
+
+        control.replay();
+        byte[] photo = EidCard.fromCard(mockCard).readEidPhotoBytes();
+        control.verify();
+
+        assertTrue(Arrays.equals(Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9), photo));
+    }
+
+    public void testReadEidPhotoBytes_endOfFileData() throws Exception {
+        byte[] file = ReadPlan.Layout.APOLLO.wrap(Utils.asByteArray(
+            0x00, 0x00, 0x00, 0x00, 0xff, 0xd8, 0xff, 0xd9));
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        EasyMock.expect(mockChannel.transmit(
+                new CommandAPDU(0x00, 0xA4, 0x08, 0x00, EidCard.PHOTO_FILE, 0)))
+                .andReturn(new ResponseAPDU(Utils.asByteArray(0x90, 0x00)));
+        // the whole file returned with 6282 is used, not read again
+        expectReadBinary(0, EidCard.BLOCK_SIZE, 0x6282, file);
+        mockCard.endExclusive();
+
+        control.replay();
+        EidCard card = EidCard.fromCard(mockCard);
+        ReadPlan plan = new ReadPlan("Apollo", ReadPlan.Layout.APOLLO,
+                new ReadPlan.FileSpec(EidCard.PHOTO_FILE, 1024, 32768));
+        card.setReadPlan(plan);
+        byte[] photo = card.readEidPhotoBytes();
+        control.verify();
+
+        assertTrue(Arrays.equals(Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9), photo));
+    }
+
+    public void testReadAll_cached() throws Exception {
+        byte[] document = Utils.asByteArray(0x0a, 0x06, 0x04, 0x00, '1', '0', '0', '0');
+        byte[] residence = Utils.asByteArray(0x20, 0x06, 0x03, 0x00, 'S', 'R', 'B');
+
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, document);
+        expectApolloFile(EidCard.RESIDENCE_FILE, residence);
+        expectApolloFile(EidCard.PERSONAL_FILE, Utils.asByteArray(
+            0x16, 0x06, 0x0d, 0x00, '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'));
+        expectApolloFile(EidCard.PHOTO_FILE, Utils.asByteArray(
+            0x00, 0x00, 0x00, 0x00, 0xff, 0xd8, 0xff, 0xd9));
+        mockCard.endExclusive();
+
+        // card inserted again, only the document and the residence file are read
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, document);
+        expectApolloFile(EidCard.RESIDENCE_FILE, residence);
+        mockCard.endExclusive();
+
+        // the photo is found by the document file alone
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, document);
+        mockCard.endExclusive();
+
+        control.replay();
+        EidCache cache = new EidCache(10);
+        EidCard card = EidCard.fromCard(mockCard);
+        card.setCache(cache);
+        EidSnapshot first = card.readAll();
+        EidSnapshot second = card.readAll();
+        byte[] photo = card.readEidPhotoBytes();
+        control.verify();
+
+        assertSame(first, second);
+        assertEquals("SRB", second.getInfo().getState());
+        assertTrue(Arrays.equals(first.getPhotoBytes(), photo));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testReadEidInfo_cachedResidenceChanged() throws Exception {
+        byte[] document = Utils.asByteArray(0x0a, 0x06, 0x04, 0x00, '1', '0', '0', '0');
+        byte[] personal = Utils.asByteArray(
+            0x16, 0x06, 0x0d, 0x00, '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0');
+
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, document);
+        expectApolloFile(EidCard.RESIDENCE_FILE, Utils.asByteArray(
+            0x20, 0x06, 0x03, 0x00, 'S', 'R', 'B'));
+        expectApolloFile(EidCard.PERSONAL_FILE, personal);
+        expectApolloFile(EidCard.PHOTO_FILE, Utils.asByteArray(
+            0x00, 0x00, 0x00, 0x00, 0xff, 0xd8, 0xff, 0xd9));
+        mockCard.endExclusive();
+
+        // the holder moved, the residence file has the same length
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, document);
+        expectApolloFile(EidCard.RESIDENCE_FILE, Utils.asByteArray(
+            0x20, 0x06, 0x03, 0x00, 'B', 'I', 'H'));
+        expectApolloFile(EidCard.PERSONAL_FILE, personal);
+        mockCard.endExclusive();
+
+        control.replay();
+        EidCache cache = new EidCache(10);
+        EidCard card = EidCard.fromCard(mockCard);
+        card.setCache(cache);
+        card.readAll();
+        EidInfo info = card.readEidInfo();
+        control.verify();
+
+        assertEquals("BIH", info.getState());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testReadEidInfo_selectedTags() throws Exception {
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, Utils.asByteArray(
+            0x0e, 0x06, 0x08, 0x00, '0', '1', '0', '1', '2', '0', '3', '0'));
+        expectApolloFile(EidCard.PERSONAL_FILE, Utils.asByteArray(
+            0x16, 0x06, 0x0d, 0x00, '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'));
+        mockCard.endExclusive();
+
+        control.replay();
+        EidInfo info = EidCard.fromCard(mockCard).readEidInfo(Tag.PERSONAL_NUMBER, Tag.EXPIRY_DATE);
+        control.verify();
+
+        assertEquals("0000000000000", info.getPersonalNumber());
+        assertEquals("01.01.2030", info.getExpiryDate());
+        assertNull(info.getState());
+    }
+
+    public void testReadEidInfo_unknownTag() throws Exception {
+        expectSerbianAtr();
+        control.replay();
+
+        try {
+            EidCard.fromCard(mockCard).readEidInfo(Tag.NULL);
+            fail("exception expected");
+        } catch (IllegalArgumentException expected) {
+            control.verify();
+        }
+    }
+
+    public void testReadEidInfoLazily() throws Exception {
+        expectSerbianAtr();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.PERSONAL_FILE, Utils.asByteArray(
+            0x17, 0x06, 0x02, 0x00, 'P', 'P'));
+        mockCard.endExclusive();
+        mockCard.beginExclusive();
+        expectApolloFile(EidCard.DOCUMENT_FILE, Utils.asByteArray(
+            0x0a, 0x06, 0x04, 0x00, '1', '0', '0', '0'));
+        expectApolloFile(EidCard.RESIDENCE_FILE, Utils.asByteArray(
+            0x20, 0x06, 0x03, 0x00, 'S', 'R', 'B'));
+        mockCard.endExclusive();
+
+        control.replay();
+        LazyEidInfo lazy = EidCard.fromCard(mockCard).readEidInfoLazily();
+        assertFalse(lazy.isLoaded(Tag.SURNAME));
+        assertEquals("PP", lazy.get(Tag.SURNAME));
+        assertTrue(lazy.isLoaded(Tag.GIVEN_NAME));
+        assertNull(lazy.get(Tag.GIVEN_NAME));
+        EidInfo info = lazy.getEidInfo();
+        control.verify();
+
+        assertEquals("PP", info.getSurname());
+        assertEquals("1000", info.getDocRegNo());
+        assertEquals("SRB", info.getState());
+    }
 /*    
     public void testDebugEidInfo() {
         fail("tbd");
@@ -137,6 +452,48 @@ public class EidCardTest extends TestCase {
         expectAtr(EidCardApollo.CARD_ATR);
     }
 
+    /**
+     * Expects the Apollo card to select and read the file, reading the header and the data
+     * together in the first read, sized as the read plan expects
+     */
+    private void expectApolloFile(byte[] name, byte[] content) throws Exception {
+        EasyMock.expect(mockChannel.transmit(new CommandAPDU(0x00, 0xA4, 0x08, 0x00, name, 0)))
+                .andReturn(new ResponseAPDU(Utils.asByteArray(0x90, 0x00)));
+        byte[] file = ReadPlan.Layout.APOLLO.wrap(content);
+        int first = Math.min(EidCard.BLOCK_SIZE, ReadPlan.APOLLO.getFile(name).getExpectedLength());
+        expectReadBinary(0, first, 0x9000, Arrays.copyOf(file, Math.min(first, file.length)));
+        if (file.length > first) {
+            expectReadBinary(first, file.length - first, 0x9000,
+                Arrays.copyOfRange(file, first, file.length));
+        }
+    }
+
+    /** Expects READ BINARY, sent from the reused buffers */
+    private void expectReadBinary(int offset, int length, int sw, byte[] data) throws Exception {
+        final byte[] response = Arrays.copyOf(data, data.length + 2);
+        response[data.length] = (byte) (sw >> 8);
+        response[data.length + 1] = (byte) sw;
+        ByteBuffer command = ByteBuffer.wrap(
+                new CommandAPDU(0x00, 0xB0, offset >> 8, offset & 0xFF, length).getBytes());
+        EasyMock.expect(mockChannel.transmit(
+                EasyMock.eq(command), EasyMock.isA(ByteBuffer.class)))
+                .andAnswer(new IAnswer<Integer>() {
+                    public Integer answer() {
+                        ((ByteBuffer) EasyMock.getCurrentArguments()[1]).put(response);
+                        return response.length;
+                    }
+                });
+    }
+
+    /** Expects READ BINARY failing in the transmission */
+    private void expectReadBinaryFailure(int offset, int length) throws Exception {
+        ByteBuffer command = ByteBuffer.wrap(
+                new CommandAPDU(0x00, 0xB0, offset >> 8, offset & 0xFF, length).getBytes());
+        EasyMock.expect(mockChannel.transmit(
+                EasyMock.eq(command), EasyMock.isA(ByteBuffer.class)))
+                .andThrow(new CardException("Transmission failed"));
+    }
+
     private void expectAtr(byte[] atrSequence) {
         EasyMock.expect(mockCard.getBasicChannel())
                 .andStubReturn(mockChannel);
@@ -18,6 +18,8 @@
 
 package net.devbase.jfreesteel;
 
+import java.util.Calendar;
+
 import net.devbase.jfreesteel.EidInfo.Builder;
 import net.devbase.jfreesteel.EidInfo.Tag;
 
@@ -138,6 +140,57 @@ public class EidInfoTest extends EidTestCase {
         assertEquals("Name Parent Surname", info.getNameFull());
     }
 
+    public void testDerivedValuesMemoized() {
+        EidInfo info = buildEidInfoForSimpleGetters();
+        assertSame(info.getNameFull(), info.getNameFull());
+        assertSame(info.getPlaceOfBirthFull(), info.getPlaceOfBirthFull());
+        assertSame(info.getPlaceFull("ulaz %s", "%s. sprat", "br. %s"),
+            info.getPlaceFull("ulaz %s", "%s. sprat", "br. %s"));
+        assertEquals(
+            "Street 55L AA E, BB 666, CC 1212\n" +
+            "City, Community\n" +
+            "State",
+            info.getPlaceFull("AA %s", "BB %s", "CC %s"));
+    }
+
+    public void testImmutable() {
+        Builder builder = new EidInfo.Builder()
+            .addValue(Tag.SURNAME, "Surname");
+        EidInfo info = builder.build();
+        builder.addValue(Tag.SURNAME, "Other");
+        assertEquals("Surname", info.getSurname());
+    }
+
+    public void testGetDate() {
+        EidInfo info = new EidInfo.Builder()
+            .addValue(Tag.ISSUING_DATE, "12.12.2010")
+            .addValue(Tag.EXPIRY_DATE, "12122020")
+            .addValue(Tag.DATE_OF_BIRTH, "99999999")
+            .build();
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2010, Calendar.DECEMBER, 12);
+        assertEquals(calendar.getTime(), info.getDate(Tag.ISSUING_DATE));
+        calendar.set(2020, Calendar.DECEMBER, 12);
+        assertEquals(calendar.getTime(), info.getDate(Tag.EXPIRY_DATE));
+        assertNull(info.getDate(Tag.DATE_OF_BIRTH));
+        assertNull(info.getDate(Tag.ADDRESS_DATE));
+
+        try {
+            info.getDate(Tag.SURNAME);
+            fail("exception expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testGetIssuingDate_formatted() {
+        EidInfo info = new EidInfo.Builder()
+            .addValue(Tag.ISSUING_DATE, "12122010")
+            .build();
+        assertEquals("12.12.2010", info.getIssuingDate());
+    }
+
     private EidInfo buildEidInfoForSimpleGetters() {
         Builder builder = new EidInfo.Builder()
             .addValue(Tag.DOC_REG_NO, "1000")
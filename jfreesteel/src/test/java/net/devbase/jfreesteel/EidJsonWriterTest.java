@@ -0,0 +1,117 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+package net.devbase.jfreesteel;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.bind.DatatypeConverter;
+
+import net.devbase.jfreesteel.EidInfo.Tag;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+public class EidJsonWriterTest extends EidTestCase {
+
+    private EidInfo buildEidInfo() {
+        return new EidInfo.Builder()
+            .addValue(Tag.DOC_REG_NO, "1000")
+            .addValue(Tag.SURNAME, "Презиме")
+            .addValue(Tag.GIVEN_NAME, "Name \"Quoted\"")
+            .addValue(Tag.PARENT_GIVEN_NAME, "Parent/\\")
+            .addValue(Tag.STREET, "Street")
+            .addValue(Tag.HOUSE_NUMBER, "55")
+            .addValue(Tag.FLOOR, "2")
+            .addValue(Tag.PLACE, "City\t\u0001 ")
+            .addValue(Tag.COMMUNITY, "Community")
+            .addValue(Tag.STATE, "SRB")
+            .build();
+    }
+
+    public void testWrite_sameAsToJSON() throws Exception {
+        EidInfo info = buildEidInfo();
+        StringBuilder out = new StringBuilder();
+        EidJsonWriter.write(info, out);
+
+        assertEquals(info.toJSON(), JSONValue.parse(out.toString()));
+    }
+
+    public void testWrite_stableOrder() throws Exception {
+        StringBuilder out = new StringBuilder();
+        EidJsonWriter.write(buildEidInfo(), out);
+
+        assertTrue(out.toString().startsWith("{\"name_full\":"));
+        assertTrue(out.toString().endsWith(",\"floor_number\":\"2\"}"));
+        assertContains("\"place_of_birth_full\":\"\",\"doc_reg_no\":\"1000\"", out.toString());
+    }
+
+    public void testWrite_escaping() throws Exception {
+        String value = "a\"b\\c/d\b\f\n\r\t\u0000\u001f\u007f\u0085 ⃿℀Ђ";
+        StringBuilder out = new StringBuilder();
+        new EidJsonWriter(out).value(value);
+
+        assertEquals("\"" + JSONValue.escape(value) + "\"", out.toString());
+    }
+
+    public void testWrite_photo() throws Exception {
+        byte[] photo = Utils.asByteArray(0xff, 0xd8, 0xff, 0xe0, 0x00, 0x10, 0x4a);
+        for (int length = 0; length <= photo.length; length++) {
+            byte[] bytes = new byte[length];
+            System.arraycopy(photo, 0, bytes, 0, length);
+            StringBuilder out = new StringBuilder();
+            new EidJsonWriter(out).base64Value(bytes);
+
+            assertEquals("\"" + DatatypeConverter.printBase64Binary(bytes) + "\"", out.toString());
+        }
+    }
+
+    public void testWrite_stream() throws Exception {
+        EidInfo info = buildEidInfo();
+        byte[] photo = Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EidJsonWriter.write(info, photo, out);
+
+        JSONObject obj = (JSONObject) JSONValue.parse(
+            new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(info.toJSON(), obj.get("info"));
+        assertEquals("/9j/2Q==", obj.get("photo"));
+    }
+
+    public void testMembers() throws Exception {
+        StringBuilder out = new StringBuilder();
+        new EidJsonWriter(out)
+            .beginObject()
+            .name("event").value("removed")
+            .name("code").value(7)
+            .name("nested").beginObject().endObject()
+            .name("none").value((String) null)
+            .endObject();
+
+        assertEquals(
+            "{\"event\":\"removed\",\"code\":7,\"nested\":{},\"none\":null}", out.toString());
+    }
+
+    public void testValueWithoutName() throws Exception {
+        try {
+            new EidJsonWriter(new StringBuilder()).beginObject().value("value");
+            fail("exception expected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.ListenerQueue.Kind;
+import net.devbase.jfreesteel.Reader.ReaderListener;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+public class ListenerQueueTest extends TestCase {
+
+    /** Executor running the tasks only when asked to */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private static ListenerQueue.Event event(
+            Kind kind, Object source, final List<String> out, final String name) {
+        return new ListenerQueue.Event(kind, source) {
+            public void run() {
+                out.add(name);
+            }
+        };
+    }
+
+    public void testOrder() throws Exception {
+        ExecutorService executor = ListenerExecutors.newBoundedPool(4);
+        List<String> out = Collections.synchronizedList(new ArrayList<String>());
+        List<String> expected = new ArrayList<String>();
+        ListenerQueue queue = new ListenerQueue(executor);
+        for (int i = 0; i < 1000; i++) {
+            queue.post(event(Kind.OTHER, "reader", out, "event " + i));
+            expected.add("event " + i);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(expected, out);
+    }
+
+    public void testCoalesce() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        List<String> out = new ArrayList<String>();
+        ListenerQueue queue = new ListenerQueue(executor);
+        queue.post(event(Kind.INSERTED, "reader 0", out, "inserted 0"));
+        queue.post(event(Kind.INSERTED, "reader 1", out, "inserted 1"));
+        queue.post(event(Kind.REMOVED, "reader 0", out, "removed 0"));
+        executor.runAll();
+        assertEquals(Arrays.asList("inserted 1", "removed 0"), out);
+
+        // insertion already delivered
+        out.clear();
+        queue.post(event(Kind.INSERTED, "reader 0", out, "inserted 0"));
+        executor.runAll();
+        queue.post(event(Kind.REMOVED, "reader 0", out, "removed 0"));
+        executor.runAll();
+        assertEquals(Arrays.asList("inserted 0", "removed 0"), out);
+    }
+
+    public void testListenerFailure() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        List<String> out = new ArrayList<String>();
+        ListenerQueue queue = new ListenerQueue(executor);
+        queue.post(new ListenerQueue.Event(Kind.OTHER, "reader") {
+            public void run() {
+                throw new IllegalStateException("listener bug");
+            }
+        });
+        queue.post(event(Kind.OTHER, "reader", out, "next"));
+        executor.runAll();
+        assertEquals(Arrays.asList("next"), out);
+    }
+
+    public void testDispatchLatency() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        ReaderMetrics metrics = new ReaderMetrics("reader", Collections.emptyList());
+        List<String> out = new ArrayList<String>();
+        ListenerQueue queue = new ListenerQueue(executor, metrics);
+        queue.post(event(Kind.OTHER, "reader", out, "first"));
+        queue.post(event(Kind.OTHER, "reader", out, "second"));
+        assertEquals(0, metrics.getDispatchLatency().getCount());
+
+        // recorded when the listener returns, including the time waiting in the queue
+        Thread.sleep(20);
+        executor.runAll();
+        assertEquals(2, metrics.getDispatchLatency().getCount());
+        assertTrue(metrics.getDispatchLatency().getMaxMicros() >= 20000);
+    }
+
+    public void testSlowListener() throws Exception {
+        VirtualCardTerminal terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+        Reader reader = new Reader(terminal, ListenerExecutors.newBoundedPool(2));
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch slowInserted = new CountDownLatch(1);
+        final CountDownLatch slowRemoved = new CountDownLatch(1);
+        reader.addCardListener(new ReaderListener() {
+            public void inserted(EidCard card) {
+                slowInserted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            public void removed() {
+                slowRemoved.countDown();
+            }
+        });
+        final CountDownLatch inserted = new CountDownLatch(1);
+        final CountDownLatch removed = new CountDownLatch(1);
+        reader.addCardListener(new ReaderListener() {
+            public void inserted(EidCard card) {
+                inserted.countDown();
+            }
+
+            public void removed() {
+                removed.countDown();
+            }
+        });
+
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+        // removed while the slow listener handles the insertion, not coalesced with it
+        assertTrue(slowInserted.await(5, TimeUnit.SECONDS));
+        terminal.remove();
+        assertTrue(removed.await(5, TimeUnit.SECONDS));
+
+        // the slow listener still gets its removal, in order
+        assertEquals(1, slowRemoved.getCount());
+        release.countDown();
+        assertTrue(slowRemoved.await(5, TimeUnit.SECONDS));
+    }
+}
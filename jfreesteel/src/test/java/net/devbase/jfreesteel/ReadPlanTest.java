@@ -0,0 +1,156 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.Arrays;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import junit.framework.TestCase;
+import net.devbase.jfreesteel.ReadPlan.FileSpec;
+import net.devbase.jfreesteel.ReadPlan.Layout;
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class ReadPlanTest extends TestCase {
+
+    private VirtualCardTerminal terminal;
+
+    @Override
+    public void setUp() {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+    }
+
+    /** Returns a new plan with the built-in file ranges, without the learned sizes */
+    private static ReadPlan newPlan(ReadPlan plan) {
+        FileSpec[] files = new FileSpec[plan.getFiles().size()];
+        for (int i = 0; i < files.length; i++) {
+            FileSpec file = plan.getFiles().get(i);
+            files[i] = new FileSpec(file.getName(), file.getMinLength(), file.getMaxLength());
+        }
+        return new ReadPlan(plan.getName(), plan.getLayout(), files);
+    }
+
+    private EidSnapshot readAll(ReadPlan plan) throws CardException {
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setReadPlan(plan);
+        return card.readAll();
+    }
+
+    public void testLearnedSizesSaveApdus() throws Exception {
+        for (Type type : Type.values()) {
+            terminal.insert(VirtualCardImage.sample(type, 1));
+            ReadPlan plan = newPlan(type.getReadPlan());
+
+            long start = terminal.getTransmitCount();
+            EidSnapshot first = readAll(plan);
+            long middle = terminal.getTransmitCount();
+            EidSnapshot second = readAll(plan);
+            long end = terminal.getTransmitCount();
+
+            assertTrue(type.toString(), end - middle < middle - start);
+            assertTrue(Arrays.equals(first.getPhotoBytes(), second.getPhotoBytes()));
+            assertTrue(Arrays.equals(first.getPersonalFile(), second.getPersonalFile()));
+            assertEquals(first.getPersonalFile().length + plan.getLayout().getHeaderLength(),
+                    plan.getFile(EidCard.PERSONAL_FILE).getExpectedLength());
+        }
+    }
+
+    public void testPastEndOfFileFallsBack() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        byte[] document = readAll(newPlan(ReadPlan.APOLLO)).getDocumentFile();
+        ReadPlan plan = newPlan(ReadPlan.APOLLO);
+        plan.getFile(EidCard.DOCUMENT_FILE).learn(200);
+
+        // the card does not read past the end of the file
+        final int length = document.length + 6;
+        terminal.setFaultInjector(new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) {
+                if (command.getINS() == 0xB0 && command.getP2() == 0 && command.getNe() > length) {
+                    return new ResponseAPDU(new byte[] {0x6C, (byte) length});
+                }
+                return null;
+            }
+        });
+
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setReadPlan(plan);
+        assertEquals("SRB", card.readEidInfo().getState());
+        assertEquals(length, plan.getFile(EidCard.DOCUMENT_FILE).getExpectedLength());
+    }
+
+    public void testMissedNotRaisedAgain() {
+        FileSpec file = new FileSpec(EidCard.DOCUMENT_FILE, 64, 512);
+        file.learn(300);
+        assertEquals(300, file.getExpectedLength());
+
+        // a mix of cards with short and long files settles on the short one
+        file.missed(200);
+        assertEquals(200, file.getExpectedLength());
+        file.learn(300);
+        assertEquals(200, file.getExpectedLength());
+        file.missed(250);
+        assertEquals(200, file.getExpectedLength());
+        file.missed(100);
+        assertEquals(100, file.getExpectedLength());
+
+        file.missed(10);
+        assertEquals(64, file.getExpectedLength());
+        file.learn(300);
+        assertEquals(64, file.getExpectedLength());
+    }
+
+    public void testFileNotInPlan() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        EidSnapshot expected = readAll(newPlan(ReadPlan.GEMALTO));
+
+        // the first read covers the outer tag only, shorter than the photo tags stripped
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setReadPlan(new ReadPlan("Gemalto", Layout.GEMALTO));
+        assertTrue(Arrays.equals(expected.getPhotoBytes(), card.readEidPhotoBytes()));
+        assertEquals("SRB", card.readEidInfo().getState());
+    }
+
+    public void testLayout() {
+        byte[] content = {1, 2, 3};
+        assertEquals(9, Layout.APOLLO.fileLength(Layout.APOLLO.wrap(content)));
+        assertEquals(7, Layout.GEMALTO.fileLength(Layout.GEMALTO.wrap(content)));
+    }
+
+    public void testProfilePlan() throws Exception {
+        assertSame(ReadPlan.APOLLO, EidCardProfiles.APOLLO.getReadPlan());
+        assertSame(ReadPlan.GEMALTO, EidCardProfiles.GEMALTO.getReadPlan());
+
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        assertSame(ReadPlan.GEMALTO, card.getReadPlan());
+        try {
+            card.setReadPlan(ReadPlan.APOLLO);
+            fail("exception expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.smartcardio.CardTerminal;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.ReaderManager.ReaderManagerListener;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class ReaderManagerTest extends TestCase {
+
+    /** Records the events as "event terminal" strings */
+    private static class RecordingListener implements ReaderManagerListener {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+
+        public void terminalAdded(CardTerminal terminal) {
+            events.add("added " + terminal.getName());
+        }
+
+        public void terminalRemoved(CardTerminal terminal) {
+            events.add("removed " + terminal.getName());
+        }
+
+        public void inserted(CardTerminal terminal, EidCard card) {
+            events.add("inserted " + terminal.getName() + " " + card.getClass().getSimpleName());
+        }
+
+        public void removed(CardTerminal terminal) {
+            events.add("card removed " + terminal.getName());
+        }
+
+        String next() throws InterruptedException {
+            return events.poll(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private VirtualTerminals terminals;
+    private ReaderManager manager;
+    private RecordingListener listener;
+
+    @Override
+    public void setUp() {
+        terminals = new VirtualTerminals();
+        listener = new RecordingListener();
+    }
+
+    @Override
+    public void tearDown() {
+        if (manager != null) {
+            manager.close();
+        }
+    }
+
+    public void testCardEvents() throws Exception {
+        VirtualCardTerminal first = terminals.addTerminal("Reader 0");
+        VirtualCardTerminal second = terminals.addTerminal("Reader 1");
+        first.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        manager = new ReaderManager(terminals, 50);
+        manager.addListener(listener);
+
+        // current state is reported on subscription, or dispatched once picked up
+        assertEquals("added Reader 0", listener.next());
+        String next = listener.next();
+        if (next.equals("added Reader 1")) {
+            assertEquals("inserted Reader 0 EidCardApollo", listener.next());
+        } else {
+            assertEquals("inserted Reader 0 EidCardApollo", next);
+            assertEquals("added Reader 1", listener.next());
+        }
+
+        second.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        assertEquals("inserted Reader 1 EidCardGemalto", listener.next());
+        assertNotNull(manager.getCard(second));
+        first.remove();
+        assertEquals("card removed Reader 0", listener.next());
+        assertNull(manager.getCard(first));
+    }
+
+    public void testHotplug() throws Exception {
+        manager = new ReaderManager(terminals, 50);
+        manager.addListener(listener);
+
+        VirtualCardTerminal terminal = terminals.addTerminal("Reader 0");
+        assertEquals("added Reader 0", listener.next());
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertEquals("inserted Reader 0 EidCardApollo", listener.next());
+
+        terminals.removeTerminal(terminal);
+        assertEquals("card removed Reader 0", listener.next());
+        assertEquals("removed Reader 0", listener.next());
+        assertTrue(manager.getTerminals().isEmpty());
+    }
+
+    public void testSlowListenerNotBlockingManager() throws Exception {
+        VirtualCardTerminal first = terminals.addTerminal("Reader 0");
+        VirtualCardTerminal second = terminals.addTerminal("Reader 1");
+        manager = new ReaderManager(terminals, 50);
+
+        final CountDownLatch slowInserted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        manager.addListener(new RecordingListener() {
+            @Override
+            public void inserted(CardTerminal terminal, EidCard card) {
+                slowInserted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        manager.addListener(listener);
+        assertEquals("added Reader 0", listener.next());
+        assertEquals("added Reader 1", listener.next());
+
+        try {
+            first.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+            assertEquals("inserted Reader 0 EidCardApollo", listener.next());
+            assertTrue(slowInserted.await(5, TimeUnit.SECONDS));
+
+            // the manager and the other terminals go on while the listener is busy
+            assertEquals(2, manager.getTerminals().size());
+            assertNotNull(manager.getCard(first));
+            second.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+            assertEquals("inserted Reader 1 EidCardGemalto", listener.next());
+            manager.removeListener(listener);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    public void testClose() throws Exception {
+        VirtualCardTerminal terminal = terminals.addTerminal("Reader 0");
+        manager = new ReaderManager(terminals, 50);
+        manager.addListener(listener);
+        assertEquals("added Reader 0", listener.next());
+        assertTrue(manager.isRunning());
+
+        manager.close();
+        assertFalse(manager.isRunning());
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertNull(listener.events.poll(200, TimeUnit.MILLISECONDS));
+    }
+}
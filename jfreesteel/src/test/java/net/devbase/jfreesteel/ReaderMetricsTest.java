@@ -0,0 +1,142 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.Reader.ReaderListener;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+public class ReaderMetricsTest extends TestCase {
+
+    private VirtualCardTerminal terminal;
+
+    @Override
+    public void setUp() {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+    }
+
+    /** Waits for the reader thread to reach the state */
+    private void awaitState(ReaderMetrics metrics, ReaderMetrics.State state) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!state.name().equals(metrics.getState())) {
+            assertTrue("timeout waiting for " + state, System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    public void testCardEvents() throws Exception {
+        final CountDownLatch inserted = new CountDownLatch(1);
+        final CountDownLatch removed = new CountDownLatch(1);
+        Reader reader = new Reader(terminal);
+        reader.addCardListener(new ReaderListener() {
+            public void inserted(EidCard card) {
+                inserted.countDown();
+            }
+
+            public void removed() {
+                removed.countDown();
+            }
+        });
+        ReaderMetrics metrics = reader.getMetrics();
+        awaitState(metrics, ReaderMetrics.State.WAITING_FOR_INSERTION);
+
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+        awaitState(metrics, ReaderMetrics.State.WAITING_FOR_REMOVAL);
+        terminal.remove();
+        assertTrue(removed.await(5, TimeUnit.SECONDS));
+        awaitState(metrics, ReaderMetrics.State.WAITING_FOR_INSERTION);
+
+        assertEquals("Virtual Reader 0", metrics.getTerminalName());
+        assertEquals(1, metrics.getInsertions());
+        assertEquals(1, metrics.getRemovals());
+        assertEquals(0, metrics.getCardErrors());
+        assertEquals(1, metrics.getListenerCount());
+        assertEquals(2, metrics.getDispatchLatency().getCount());
+        assertFalse(metrics.isBuggyJavaPolling());
+        assertFalse(metrics.isTimeoutFallback());
+    }
+
+    /** Terminal failing to connect to the card, as when the card is not responding */
+    private static class FailingTerminal extends CardTerminal {
+        private final CardTerminal terminal;
+
+        FailingTerminal(CardTerminal terminal) {
+            this.terminal = terminal;
+        }
+
+        public String getName() {
+            return terminal.getName();
+        }
+
+        public Card connect(String protocol) throws CardException {
+            throw new CardException("Injected connect failure");
+        }
+
+        public boolean isCardPresent() throws CardException {
+            return terminal.isCardPresent();
+        }
+
+        public boolean waitForCardPresent(long timeout) throws CardException {
+            return terminal.waitForCardPresent(timeout);
+        }
+
+        public boolean waitForCardAbsent(long timeout) throws CardException {
+            return terminal.waitForCardAbsent(timeout);
+        }
+    }
+
+    public void testStoppedOnRepeatedError() throws Exception {
+        Reader reader = new Reader(new FailingTerminal(terminal));
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+
+        ReaderMetrics metrics = reader.getMetrics();
+        awaitState(metrics, ReaderMetrics.State.STOPPED);
+        assertEquals(0, metrics.getInsertions());
+        assertEquals(1, metrics.getReconnects());
+        assertEquals(2, metrics.getCardErrors());
+        assertTrue(metrics.getLastError().startsWith("Injected connect failure"));
+    }
+
+    public void testJmx() throws Exception {
+        Reader reader = new Reader(terminal);
+        ObjectName name = reader.getMetrics().register();
+        try {
+            awaitState(reader.getMetrics(), ReaderMetrics.State.WAITING_FOR_INSERTION);
+            assertEquals("WAITING_FOR_INSERTION",
+                    ManagementFactory.getPlatformMBeanServer().getAttribute(name, "State"));
+            assertEquals("\"Virtual Reader 0\"", name.getKeyProperty("name"));
+        } finally {
+            reader.getMetrics().unregister();
+        }
+    }
+}
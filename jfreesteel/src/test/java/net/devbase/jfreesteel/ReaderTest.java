@@ -0,0 +1,237 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.Reader.ReaderSnapshotListener;
+import net.devbase.jfreesteel.virtual.FaultInjector;
+import net.devbase.jfreesteel.virtual.VirtualCardImage;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+import net.devbase.jfreesteel.virtual.VirtualCardTerminal;
+import net.devbase.jfreesteel.virtual.VirtualTerminals;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class ReaderTest extends TestCase {
+
+    /** Records the snapshots, errors and removals */
+    private static class RecordingListener implements ReaderSnapshotListener {
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+
+        public void inserted(EidCard card, EidSnapshot snapshot) {
+            events.add(snapshot);
+        }
+
+        public void readFailed(EidCard card, CardException error) {
+            events.add(error);
+        }
+
+        public void removed() {
+            events.add("removed");
+        }
+
+        Object next() throws InterruptedException {
+            return events.poll(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private VirtualCardTerminal terminal;
+    private EidCardMetrics metrics;
+
+    @Override
+    public void setUp() {
+        terminal = new VirtualTerminals().addTerminal("Virtual Reader 0");
+        metrics = new EidCardMetrics();
+        EidCard.setDefaultInstrumentation(metrics);
+    }
+
+    @Override
+    public void tearDown() {
+        EidCard.setDefaultInstrumentation(null);
+    }
+
+    public void testSnapshotReadOnce() throws Exception {
+        Reader reader = new Reader(terminal, ListenerExecutors.newBoundedPool(2));
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        reader.addSnapshotListener(first);
+        reader.addSnapshotListener(second);
+
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidSnapshot snapshot = (EidSnapshot) first.next();
+        assertEquals("ПЕТРОВИЋ", snapshot.getInfo().getSurname());
+        assertSame(snapshot, second.next());
+        // document, personal, residence and photo
+        assertEquals(4, metrics.getFileReadCount());
+
+        terminal.remove();
+        assertEquals("removed", first.next());
+        assertEquals("removed", second.next());
+    }
+
+    public void testSlowReadNotBlockingReader() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        terminal.setFaultInjector(new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) {
+                // hold the card reads until released
+                if (command.getINS() == 0xB0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return null;
+            }
+        });
+        Reader reader = new Reader(terminal, ListenerExecutors.newBoundedPool(2));
+        RecordingListener listener = new RecordingListener();
+        reader.addSnapshotListener(listener);
+
+        // the card is published while the listener is still reading it
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"WAITING_FOR_REMOVAL".equals(reader.getMetrics().getState())) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertNull(listener.events.peek());
+
+        release.countDown();
+        assertTrue(listener.next() instanceof EidSnapshot);
+    }
+
+    public void testPrefetchStartsOnInsertion() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        // a single listener thread, held by the card listener notified first
+        Reader reader = new Reader(terminal, ListenerExecutors.newBoundedPool(1));
+        reader.addCardListener(new Reader.ReaderListener() {
+            public void inserted(EidCard card) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            public void removed() {
+            }
+        });
+        RecordingListener listener = new RecordingListener();
+        reader.addSnapshotListener(listener);
+
+        // the card is read while no snapshot listener can run
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getFileReadCount() < 4) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertNull(listener.events.peek());
+
+        release.countDown();
+        assertTrue(listener.next() instanceof EidSnapshot);
+        assertEquals(4, metrics.getFileReadCount());
+    }
+
+    public void testSnapshotListenerAddedLater() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        Reader reader = new Reader(terminal);
+        Thread.sleep(100);
+
+        RecordingListener listener = new RecordingListener();
+        reader.addSnapshotListener(listener);
+        EidSnapshot snapshot = (EidSnapshot) listener.next();
+        assertEquals("ВРАЧАР", snapshot.getInfo().getCommunity());
+        assertTrue(reader.removeSnapshotListener(listener));
+        assertFalse(reader.removeSnapshotListener(listener));
+    }
+
+    public void testReadFailed() throws Exception {
+        terminal.setFaultInjector(FaultInjector.randomStatus(1, 0x6F00, 1));
+        Reader reader = new Reader(terminal);
+        RecordingListener listener = new RecordingListener();
+        reader.addSnapshotListener(listener);
+
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertTrue(listener.next() instanceof CardException);
+    }
+
+    /** Terminal with waitForCard* not blocking, as with some PC/SC bugs */
+    private static class NonBlockingTerminal extends CardTerminal {
+        private final CardTerminal terminal;
+
+        NonBlockingTerminal(CardTerminal terminal) {
+            this.terminal = terminal;
+        }
+
+        public String getName() {
+            return terminal.getName();
+        }
+
+        public Card connect(String protocol) throws CardException {
+            return terminal.connect(protocol);
+        }
+
+        public boolean isCardPresent() throws CardException {
+            return terminal.isCardPresent();
+        }
+
+        public boolean waitForCardPresent(long timeout) {
+            return false;
+        }
+
+        public boolean waitForCardAbsent(long timeout) {
+            return false;
+        }
+    }
+
+    public void testPollingBackoff() throws Exception {
+        Reader reader = new Reader(new NonBlockingTerminal(terminal));
+        reader.setPollInterval(10, 80, TimeUnit.MILLISECONDS);
+        RecordingListener listener = new RecordingListener();
+        reader.addSnapshotListener(listener);
+        Thread.sleep(500);
+
+        ReaderMetrics metrics = reader.getMetrics();
+        assertTrue(metrics.isTimeoutFallback());
+        assertEquals(80, metrics.getPollIntervalMillis());
+        // about 10 polls, but not spinning
+        long probes = metrics.getPresenceProbes();
+        assertTrue("probes: " + probes, probes < 50);
+
+        // detected within the longest interval
+        long start = System.currentTimeMillis();
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertTrue(listener.next() instanceof EidSnapshot);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+}
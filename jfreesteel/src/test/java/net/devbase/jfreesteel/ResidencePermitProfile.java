@@ -0,0 +1,64 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import javax.smartcardio.Card;
+
+/**
+ * Card profile loaded with ServiceLoader in the tests, for made up residence permit cards
+ * with the Apollo file layout.
+ */
+@SuppressWarnings("restriction") // javax.smartcardio.Card
+public class ResidencePermitProfile extends EidCardProfile {
+
+    /** Historical bytes of the residence permit cards */
+    static final byte[] HISTORICAL_BYTES = "EID-RP01".getBytes(StandardCharsets.US_ASCII);
+
+    /** Read plan of the residence permit cards, with a larger photo */
+    static final ReadPlan PLAN = new ReadPlan("Residence permit", ReadPlan.Layout.APOLLO,
+            new ReadPlan.FileSpec(EidCard.DOCUMENT_FILE, 64, 512),
+            new ReadPlan.FileSpec(EidCard.PERSONAL_FILE, 128, 1024),
+            new ReadPlan.FileSpec(EidCard.RESIDENCE_FILE, 64, 1024),
+            new ReadPlan.FileSpec(EidCard.PHOTO_FILE, 4096, 32768));
+
+    @Override
+    public String getName() {
+        return "Residence permit";
+    }
+
+    @Override
+    public List<AtrPattern> getAtrPatterns() {
+        return Collections.singletonList(AtrPattern.historicalPrefix(
+                "EID-RP".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Override
+    public ReadPlan getReadPlan() {
+        return PLAN;
+    }
+
+    @Override
+    public EidCard createCard(Card card) {
+        return createApollo(card, getReadPlan());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+package net.devbase.jfreesteel;
+
+import net.devbase.jfreesteel.EidInfo.Tag;
+
+public class TagMapperTest extends EidTestCase {
+
+    public void testGet() {
+        TagMapper mapper = new TagMapper("TEST")
+            .register(10, Tag.SURNAME)
+            .register(12, Tag.NULL);
+
+        assertEquals(Tag.SURNAME, mapper.get(10));
+        assertNull(mapper.get(11));
+        assertEquals(Tag.NULL, mapper.get(12));
+        assertNull(mapper.get(9));
+        assertNull(mapper.get(13));
+        assertNull(mapper.get(-1));
+    }
+
+    public void testRegister_extendsRange() {
+        TagMapper mapper = new TagMapper("TEST")
+            .register(10, Tag.SURNAME)
+            .register(5, Tag.GIVEN_NAME)
+            .register(20, Tag.SEX);
+
+        assertEquals(Tag.GIVEN_NAME, mapper.get(5));
+        assertEquals(Tag.SURNAME, mapper.get(10));
+        assertEquals(Tag.SEX, mapper.get(20));
+        assertTrue(mapper.contains(Tag.SEX));
+        assertFalse(mapper.contains(Tag.STATE));
+    }
+
+    public void testRegister_invalid() {
+        try {
+            new TagMapper("TEST").register(0x10000, Tag.SURNAME);
+            fail("exception expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testKnownCardTags() {
+        assertEquals(Tag.DOC_REG_NO, EidCard.DOCUMENT_TAGMAPPER.get(1546));
+        assertEquals(Tag.PERSONAL_NUMBER, EidCard.PERSONAL_TAGMAPPER.get(1558));
+        assertEquals(Tag.ADDRESS_DATE, EidCard.RESIDENCE_TAGMAPPER.get(1580));
+        assertNull(EidCard.RESIDENCE_TAGMAPPER.get(1576));
+    }
+
+    public void testRecordUnknown() {
+        TagMapper mapper = new TagMapper("TEST");
+        byte[] value = "AB".getBytes();
+
+        mapper.recordUnknown(42, value, 0, value.length);
+        mapper.recordUnknown(42, value, 0, value.length);
+        mapper.recordUnknown(7, value, 1, 1);
+
+        assertEquals("{7=1, 42=2}", mapper.getUnknownTagCounts().toString());
+    }
+}
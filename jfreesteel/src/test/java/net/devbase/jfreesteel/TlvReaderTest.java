@@ -0,0 +1,96 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+package net.devbase.jfreesteel;
+
+import java.util.Arrays;
+
+public class TlvReaderTest extends EidTestCase {
+
+    private static final byte[] DATA = Utils.asByteArray(
+        0xfe, 0xca,  // 0xcafe
+        0x01, 0x00,  // 0x1
+        0xfe, // 1-byte data
+        0xbe, 0xba,  // 0xbabe
+        0x03, 0x00,  // 0x3
+        'a', 'b', 'c', // 3-byte data
+        0xff, 0xff   // Some extra crud, ignored
+        );
+
+    public void testNext() {
+        TlvReader tlv = new TlvReader(DATA);
+
+        assertTrue(tlv.next());
+        assertEquals(0xcafe, tlv.tag());
+        assertEquals(4, tlv.valueOffset());
+        assertEquals(1, tlv.valueLength());
+        assertSame(DATA, tlv.buffer());
+
+        assertTrue(tlv.next());
+        assertEquals(0xbabe, tlv.tag());
+        assertEquals(9, tlv.valueOffset());
+        assertEquals("abc", tlv.valueAsString());
+        assertTrue(Arrays.equals(Utils.asByteArray('a', 'b', 'c'), tlv.value()));
+
+        assertFalse(tlv.next());
+        assertFalse(tlv.next());
+    }
+
+    public void testReset() {
+        TlvReader tlv = new TlvReader(DATA);
+        while (tlv.next()) {}
+
+        tlv.reset();
+        assertTrue(tlv.next());
+        assertEquals(0xcafe, tlv.tag());
+    }
+
+    public void testRange() {
+        TlvReader tlv = new TlvReader(DATA, 5, 7);
+        assertTrue(tlv.next());
+        assertEquals(0xbabe, tlv.tag());
+        assertFalse(tlv.next());
+    }
+
+    public void testTruncated() {
+        TlvReader tlv = new TlvReader(Arrays.copyOf(DATA, 11));
+        assertTrue(tlv.next());
+        try {
+            tlv.next();
+            fail("exception expected");
+        } catch (IllegalArgumentException expected) {
+            assertContains("tag=47806, length=3", expected.getMessage());
+        }
+    }
+
+    public void testNoCurrentEntry() {
+        TlvReader tlv = new TlvReader(DATA);
+        try {
+            tlv.tag();
+            fail("exception expected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testInvalidRange() {
+        try {
+            new TlvReader(DATA, 10, 10);
+            fail("exception expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -32,6 +32,12 @@ public class UtilsTest extends EidTestCase {
         assertEquals("Hello world", Utils.bytes2UTF8String("Hello world".getBytes()));
     }
 
+    public void testBytes2Base64String() {
+        assertEquals("", Utils.bytes2Base64String(new byte[0]));
+        assertEquals("/9j/2Q==", Utils.bytes2Base64String(
+            Utils.asByteArray(0xff, 0xd8, 0xff, 0xd9)));
+    }
+
     public void testMap2UTF8String() {
     	
     	@SuppressWarnings("serial")
@@ -0,0 +1,105 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.util.Random;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Fault injected into the APDU exchange with a virtual card.
+ *
+ * Called before each command is processed by the card. Return null to process the command
+ * normally, return a response to use it instead, or throw CardException to emulate a failed
+ * transmission. Implementations must be thread safe when shared between terminals.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public abstract class FaultInjector {
+
+    /** No faults */
+    public static final FaultInjector NONE = new FaultInjector() {
+        @Override
+        public ResponseAPDU inject(CommandAPDU command, long count) {
+            return null;
+        }
+    };
+
+    /**
+     * @param command Command sent to the card
+     * @param count Number of commands sent to the terminal before this one
+     * @return Response returned instead of the card response, or null
+     * @throws CardException to fail the transmission
+     */
+    public abstract ResponseAPDU inject(CommandAPDU command, long count) throws CardException;
+
+    /** Fails every n-th transmission with CardException. */
+    public static FaultInjector failEvery(final int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(String.format("Invalid interval %d", n));
+        }
+        return new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) throws CardException {
+                if ((count + 1) % n == 0) {
+                    throw new CardException(String.format("Injected transmission failure #%d", count));
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Answers random commands with the status word instead of processing them.
+     *
+     * @param probability Probability of the fault for each command, between 0 and 1
+     * @param sw Status word to return, e.g. 0x6F00
+     * @param seed Random seed, so the runs can be repeated
+     */
+    public static FaultInjector randomStatus(final double probability, final int sw, long seed) {
+        final Random random = new Random(seed);
+        return new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) {
+                boolean fail;
+                synchronized (random) {
+                    fail = random.nextDouble() < probability;
+                }
+                return fail ? new ResponseAPDU(new byte[] {(byte) (sw >> 8), (byte) sw}) : null;
+            }
+        };
+    }
+
+    /**
+     * Answers commands with extended length with 6700 (wrong length), as readers without
+     * extended length support do.
+     */
+    public static FaultInjector shortApdusOnly() {
+        return new FaultInjector() {
+            @Override
+            public ResponseAPDU inject(CommandAPDU command, long count) {
+                if (command.getNe() > 256 || command.getNc() > 255) {
+                    return new ResponseAPDU(new byte[] {0x67, 0x00});
+                }
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+
+/**
+ * Connection to the card in a virtual terminal.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+class VirtualCard extends Card {
+
+    final VirtualCardTerminal terminal;
+    final VirtualCardImage image;
+    private final long generation;
+    private final VirtualCardChannel channel;
+    private volatile boolean connected = true;
+
+    VirtualCard(VirtualCardTerminal terminal, VirtualCardImage image, long generation) {
+        this.terminal = terminal;
+        this.image = image;
+        this.generation = generation;
+        this.channel = new VirtualCardChannel(this);
+    }
+
+    @Override
+    public ATR getATR() {
+        return new ATR(image.getAtr());
+    }
+
+    @Override
+    public String getProtocol() {
+        return "T=1";
+    }
+
+    @Override
+    public CardChannel getBasicChannel() {
+        checkConnected();
+        return channel;
+    }
+
+    @Override
+    public CardChannel openLogicalChannel() throws CardException {
+        throw new CardException("Logical channels are not supported");
+    }
+
+    @Override
+    public void beginExclusive() throws CardException {
+        checkConnected();
+        checkPresent();
+        terminal.exclusive.lock();
+    }
+
+    @Override
+    public void endExclusive() throws CardException {
+        checkConnected();
+        if (!terminal.exclusive.isHeldByCurrentThread()) {
+            // beginExclusive() failed as the card was removed
+            checkPresent();
+            throw new IllegalStateException("Exclusive access was not established");
+        }
+        terminal.exclusive.unlock();
+    }
+
+    @Override
+    public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+        throw new CardException("Control commands are not supported");
+    }
+
+    @Override
+    public void disconnect(boolean reset) throws CardException {
+        if (connected) {
+            connected = false;
+            while (terminal.exclusive.isHeldByCurrentThread()) {
+                terminal.exclusive.unlock();
+            }
+        }
+    }
+
+    void checkConnected() {
+        if (!connected) {
+            throw new IllegalStateException("Card has been disconnected");
+        }
+    }
+
+    void checkPresent() throws CardException {
+        if (!terminal.isPresent(generation)) {
+            throw new CardException("Card has been removed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualCard[" + terminal.getName() + ", "
+                + (image.getType() != null ? image.getType() : image.getLayout()) + "]";
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Basic channel of the virtual card, answering SELECT and READ BINARY commands from the
+ * card image.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+class VirtualCardChannel extends CardChannel {
+
+    private static final int SW_OK = 0x9000;
+    private static final int SW_WRONG_LENGTH = 0x6700;
+    private static final int SW_NO_FILE_SELECTED = 0x6986;
+    private static final int SW_FILE_NOT_FOUND = 0x6A82;
+    private static final int SW_WRONG_OFFSET = 0x6B00;
+    private static final int SW_INS_NOT_SUPPORTED = 0x6D00;
+    private static final int SW_CLA_NOT_SUPPORTED = 0x6E00;
+
+    /** Largest response, as with 64 KiB extended length APDUs */
+    private static final int MAX_NE = 65536;
+
+    private final VirtualCard card;
+
+    // Card state, guarded by the terminal exclusive lock
+    private boolean applicationSelected = false;
+    private byte[] selectedFile = null;
+
+    VirtualCardChannel(VirtualCard card) {
+        this.card = card;
+    }
+
+    @Override
+    public Card getCard() {
+        return card;
+    }
+
+    @Override
+    public int getChannelNumber() {
+        return 0;
+    }
+
+    @Override
+    public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+        card.checkConnected();
+        VirtualCardTerminal terminal = card.terminal;
+
+        terminal.exclusive.lock();
+        try {
+            card.checkPresent();
+            long count = terminal.countTransmit();
+            ResponseAPDU response = terminal.getFaultInjector().inject(command, count);
+            if (response == null) {
+                response = process(command);
+            }
+            terminal.transfer(command.getBytes().length + response.getBytes().length);
+
+            // the card could be removed while the command was processed
+            card.checkPresent();
+            return response;
+        } finally {
+            terminal.exclusive.unlock();
+        }
+    }
+
+    @Override
+    public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+        byte[] bytes = new byte[command.remaining()];
+        command.get(bytes);
+        byte[] answer = transmit(new CommandAPDU(bytes)).getBytes();
+        response.put(answer);
+        return answer.length;
+    }
+
+    @Override
+    public void close() throws CardException {
+        throw new IllegalStateException("Basic channel can not be closed");
+    }
+
+    private ResponseAPDU process(CommandAPDU command) {
+        if (command.getCLA() != 0x00) {
+            return status(SW_CLA_NOT_SUPPORTED);
+        }
+        switch (command.getINS()) {
+            case 0xA4:
+                return select(command);
+            case 0xB0:
+                return readBinary(command);
+            default:
+                return status(SW_INS_NOT_SUPPORTED);
+        }
+    }
+
+    private ResponseAPDU select(CommandAPDU command) {
+        byte[] aid = card.image.getAid();
+        byte[] data = command.getData();
+
+        if (command.getP1() == 0x04) {
+            // select application by AID
+            if (aid == null || !Arrays.equals(aid, data)) {
+                return status(SW_FILE_NOT_FOUND);
+            }
+            applicationSelected = true;
+            selectedFile = null;
+            return status(SW_OK);
+        }
+
+        if (command.getP1() != 0x08 || data.length != 2) {
+            return status(SW_FILE_NOT_FOUND);
+        }
+        // select file by path from MF, the card application has to be selected first
+        byte[] file = aid != null && !applicationSelected
+                ? null : card.image.getFile(((data[0] & 0xFF) << 8) | (data[1] & 0xFF));
+        if (file == null) {
+            return status(SW_FILE_NOT_FOUND);
+        }
+        selectedFile = file;
+
+        // file control information, with the file size as 16bit BE at 2B offset
+        byte[] fci = {(byte) 0x80, 0x02, (byte) (file.length >> 8), (byte) file.length};
+        return response(fci, 0, Math.min(command.getNe(), fci.length), SW_OK);
+    }
+
+    private ResponseAPDU readBinary(CommandAPDU command) {
+        if (selectedFile == null) {
+            return status(SW_NO_FILE_SELECTED);
+        }
+        int ne = command.getNe();
+        if (ne > MAX_NE) {
+            return status(SW_WRONG_LENGTH);
+        }
+        int offset = (command.getP1() << 8) | command.getP2();
+        if (offset > selectedFile.length) {
+            return status(SW_WRONG_OFFSET);
+        }
+        return response(selectedFile, offset, Math.min(ne, selectedFile.length - offset), SW_OK);
+    }
+
+    private static ResponseAPDU response(byte[] data, int offset, int length, int sw) {
+        byte[] bytes = new byte[length + 2];
+        System.arraycopy(data, offset, bytes, 0, length);
+        bytes[length] = (byte) (sw >> 8);
+        bytes[length + 1] = (byte) sw;
+        return new ResponseAPDU(bytes);
+    }
+
+    private static ResponseAPDU status(int sw) {
+        return new ResponseAPDU(new byte[] {(byte) (sw >> 8), (byte) sw});
+    }
+}
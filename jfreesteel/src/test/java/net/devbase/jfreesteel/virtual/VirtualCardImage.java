@@ -0,0 +1,379 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.xml.bind.DatatypeConverter;
+
+import net.devbase.jfreesteel.EidCardApollo;
+import net.devbase.jfreesteel.EidCardGemalto;
+import net.devbase.jfreesteel.EidSnapshot;
+import net.devbase.jfreesteel.ReadPlan;
+
+/**
+ * Contents of a virtual eID card: the ATR and the elementary files, as stored on the card.
+ *
+ * Files are kept with the headers the card readers expect, in the file layout of the card:
+ * Apollo files start with a 6-byte header with the content length at 4B offset, Gemalto
+ * files start with an outer tag and the file length. The photo is stored with one more inner
+ * tag in front of the JPEG data. Type presets the ATR, the layout and the application id of
+ * the built-in card generations, any other ATR, e.g. of a card batch recognized by a profile
+ * loaded into EidCardProfiles, can be emulated with one of the layouts.
+ *
+ * Images are immutable and can be shared by any number of virtual terminals.
+ */
+public final class VirtualCardImage {
+
+    /** Built-in card generation to emulate */
+    public enum Type {
+        APOLLO(EidCardApollo.CARD_ATR, null, ReadPlan.APOLLO),
+        GEMALTO(EidCardGemalto.CARD_ATR, EidCardGemalto.LICNA_KARTA_AID, ReadPlan.GEMALTO);
+
+        private final byte[] atr;
+        private final byte[] aid;
+        private final ReadPlan plan;
+
+        Type(byte[] atr, byte[] aid, ReadPlan plan) {
+            this.atr = atr;
+            this.aid = aid;
+            this.plan = plan;
+        }
+
+        /** Returns the read plan of the card generation, with the layout of the files */
+        public ReadPlan getReadPlan() {
+            return plan;
+        }
+
+        public byte[] getAtr() {
+            return atr.clone();
+        }
+
+        /** Returns the card type with the given ATR, or null if not known */
+        public static Type fromAtr(byte[] atr) {
+            for (Type type : values()) {
+                if (Arrays.equals(type.atr, atr)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Document data */
+    public static final int DOCUMENT_FILE = 0x0F02;
+
+    /** Personal data */
+    public static final int PERSONAL_FILE = 0x0F03;
+
+    /** Place of residence */
+    public static final int RESIDENCE_FILE = 0x0F04;
+
+    /** Personal photo in JPEG format */
+    public static final int PHOTO_FILE = 0x0F06;
+
+    private static final String ATR_FILE = "atr";
+    private static final String LAYOUT_FILE = "layout";
+    private static final String AID_FILE = "aid";
+
+    private final Type type;
+    private final byte[] atr;
+    private final ReadPlan.Layout layout;
+    private final byte[] aid;
+    private final Map<Integer, byte[]> files;
+
+    /**
+     * @param atr Card ATR of a built-in card generation, the type is recognized from the ATR
+     * @param files Elementary files keyed by file id, with the headers as stored on the card
+     * @throws IllegalArgumentException if the ATR is not a built-in card generation ATR
+     */
+    public VirtualCardImage(byte[] atr, Map<Integer, byte[]> files) {
+        this(atr, typeOf(atr).plan.getLayout(), typeOf(atr).aid, files);
+    }
+
+    /**
+     * @param atr Card ATR
+     * @param layout File layout
+     * @param aid Application id selected before the files, or null if not needed
+     * @param files Elementary files keyed by file id, with the headers as stored on the card
+     */
+    public VirtualCardImage(byte[] atr, ReadPlan.Layout layout, byte[] aid,
+            Map<Integer, byte[]> files) {
+        if (layout == null) {
+            throw new IllegalArgumentException("Layout is null");
+        }
+        this.type = Type.fromAtr(atr);
+        this.atr = atr.clone();
+        this.layout = layout;
+        this.aid = aid == null ? null : aid.clone();
+
+        Map<Integer, byte[]> copy = new HashMap<Integer, byte[]>();
+        for (Map.Entry<Integer, byte[]> entry : files.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().clone());
+        }
+        this.files = Collections.unmodifiableMap(copy);
+    }
+
+    private static Type typeOf(byte[] atr) {
+        Type type = Type.fromAtr(atr);
+        if (type == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Unknown card ATR: %s", DatatypeConverter.printHexBinary(atr)));
+        }
+        return type;
+    }
+
+    /**
+     * Creates the card image from the file contents, as returned by the EidCard.
+     *
+     * @param type Card type to emulate
+     * @param document TLV encoded document data
+     * @param personal TLV encoded personal data
+     * @param residence TLV encoded place of residence
+     * @param photo Photo in JPEG format
+     */
+    public static VirtualCardImage create(Type type,
+            byte[] document, byte[] personal, byte[] residence, byte[] photo) {
+        return create(type.atr, type.plan.getLayout(), type.aid,
+                document, personal, residence, photo);
+    }
+
+    /**
+     * Creates the image of a card with any ATR from the file contents, as returned by the
+     * EidCard.
+     *
+     * @param atr Card ATR
+     * @param layout File layout
+     * @param aid Application id selected before the files, or null if not needed
+     */
+    public static VirtualCardImage create(byte[] atr, ReadPlan.Layout layout, byte[] aid,
+            byte[] document, byte[] personal, byte[] residence, byte[] photo) {
+
+        Map<Integer, byte[]> files = new HashMap<Integer, byte[]>();
+        files.put(DOCUMENT_FILE, layout.wrap(document));
+        files.put(PERSONAL_FILE, layout.wrap(personal));
+        files.put(RESIDENCE_FILE, layout.wrap(residence));
+        files.put(PHOTO_FILE, layout.wrap(header(0, photo.length, photo)));
+        return new VirtualCardImage(atr, layout, aid, files);
+    }
+
+    /** Creates the card image holding the data read from a real card. */
+    public static VirtualCardImage create(Type type, EidSnapshot snapshot) {
+        return create(type, snapshot.getDocumentFile(), snapshot.getPersonalFile(),
+                snapshot.getResidenceFile(), snapshot.getPhotoBytes());
+    }
+
+    /**
+     * Loads the recorded card image from the directory.
+     *
+     * The directory holds the "atr" file with the ATR as a hex string and one file per
+     * elementary file, named as the file id in hex, e.g. "0F02", with the raw file contents.
+     * Cards of other than the built-in generations also need the "layout" file with the
+     * layout name, APOLLO or GEMALTO, and the "aid" file with the application id as a hex
+     * string, if the card has one.
+     */
+    public static VirtualCardImage load(File directory) throws IOException {
+        byte[] atr = readHex(new File(directory, ATR_FILE));
+
+        Map<Integer, byte[]> files = new HashMap<Integer, byte[]>();
+        File[] entries = directory.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                if (entry.getName().matches("[0-9A-Fa-f]{4}")) {
+                    files.put(Integer.parseInt(entry.getName(), 16),
+                            Files.readAllBytes(entry.toPath()));
+                }
+            }
+        }
+
+        File layout = new File(directory, LAYOUT_FILE);
+        if (!layout.isFile()) {
+            return new VirtualCardImage(atr, files);
+        }
+        File aid = new File(directory, AID_FILE);
+        try {
+            return new VirtualCardImage(atr,
+                    ReadPlan.Layout.valueOf(readString(layout).trim()),
+                    aid.isFile() ? readHex(aid) : null, files);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(String.format("Invalid card layout in %s", layout), e);
+        }
+    }
+
+    private static String readString(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] readHex(File file) throws IOException {
+        return DatatypeConverter.parseHexBinary(readString(file).replaceAll("[\\s:]", ""));
+    }
+
+    /** Saves the card image, so it can be loaded with load(). */
+    public void save(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Files.write(new File(directory, ATR_FILE).toPath(),
+                DatatypeConverter.printHexBinary(atr).getBytes(StandardCharsets.US_ASCII));
+        if (type == null) {
+            Files.write(new File(directory, LAYOUT_FILE).toPath(),
+                    layout.name().getBytes(StandardCharsets.US_ASCII));
+            if (aid != null) {
+                Files.write(new File(directory, AID_FILE).toPath(),
+                        DatatypeConverter.printHexBinary(aid).getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        for (Map.Entry<Integer, byte[]> entry : files.entrySet()) {
+            Files.write(new File(directory, String.format("%04X", entry.getKey())).toPath(),
+                    entry.getValue());
+        }
+    }
+
+    /**
+     * Creates the card image with made up data and a photo of a realistic size.
+     *
+     * @param type Card type to emulate
+     * @param seed Seed used to generate the personal data and the photo, different seeds
+     *     give different cards
+     */
+    public static VirtualCardImage sample(Type type, long seed) {
+        return sample(type.atr, type.plan.getLayout(), type.aid, seed);
+    }
+
+    /**
+     * Creates the image of a card with any ATR, with made up data and a photo of a realistic
+     * size, see sample(Type, long).
+     *
+     * @param atr Card ATR
+     * @param layout File layout
+     * @param aid Application id selected before the files, or null if not needed
+     * @param seed Seed used to generate the personal data and the photo
+     */
+    public static VirtualCardImage sample(byte[] atr, ReadPlan.Layout layout, byte[] aid,
+            long seed) {
+        Random random = new Random(seed);
+        String documentNumber = String.format("%09d", random.nextInt(1000000000));
+        String personalNumber = String.format("%013d", (long) (random.nextDouble() * 1e13));
+
+        byte[] document = tlv(
+                1545, "SRB",
+                1546, documentNumber,
+                1547, "ID",
+                1548, "ID" + documentNumber,
+                1549, "01022015",
+                1550, "01022025",
+                1551, "ПУ ЗА ГРАД БЕОГРАД");
+        byte[] personal = tlv(
+                1558, personalNumber,
+                1559, "ПЕТРОВИЋ",
+                1560, "МАРКО",
+                1561, "ЈОВАН",
+                1562, "M",
+                1563, "БЕОГРАД",
+                1564, "САВСКИ ВЕНАЦ",
+                1565, "РЕПУБЛИКА СРБИЈА",
+                1566, "17031985",
+                1567, "SRB");
+        byte[] residence = tlv(
+                1568, "SRB",
+                1569, "ВРАЧАР",
+                1570, "БЕОГРАД",
+                1571, "БУЛЕВАР КРАЉА АЛЕКСАНДРА",
+                1572, Integer.toString(1 + random.nextInt(300)),
+                1574, "2",
+                1575, Integer.toString(random.nextInt(10)),
+                1578, Integer.toString(1 + random.nextInt(40)),
+                1580, "01022015");
+
+        return create(atr, layout, aid, document, personal, residence, samplePhoto(random));
+    }
+
+    /** Returns the built-in card generation with the card ATR, or null if there is none */
+    public Type getType() {
+        return type;
+    }
+
+    public ReadPlan.Layout getLayout() {
+        return layout;
+    }
+
+    public byte[] getAtr() {
+        return atr.clone();
+    }
+
+    /** Returns the application id selected before the files, or null if not needed */
+    byte[] getAid() {
+        return aid;
+    }
+
+    /** Returns the raw file contents, or null if there is no such file on the card. */
+    byte[] getFile(int id) {
+        return files.get(id);
+    }
+
+    /** Prepends 16bit LE tag and length to the content */
+    private static byte[] header(int tag, int length, byte[] content) {
+        byte[] out = new byte[content.length + 4];
+        out[0] = (byte) tag;
+        out[1] = (byte) (tag >> 8);
+        out[2] = (byte) length;
+        out[3] = (byte) (length >> 8);
+        System.arraycopy(content, 0, out, 4, content.length);
+        return out;
+    }
+
+    /** Encodes tag and string value pairs as TLV */
+    private static byte[] tlv(Object... pairs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < pairs.length; i += 2) {
+            byte[] value = ((String) pairs[i + 1]).getBytes(StandardCharsets.UTF_8);
+            byte[] entry = header((Integer) pairs[i], value.length, value);
+            out.write(entry, 0, entry.length);
+        }
+        return out.toByteArray();
+    }
+
+    /** Generates a 300x400 JPEG with some noise, close in size to the photos on the cards */
+    private static byte[] samplePhoto(Random random) {
+        BufferedImage image = new BufferedImage(300, 400, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int gray = Math.min(255, (x + y) / 3 + random.nextInt(16));
+                image.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+}
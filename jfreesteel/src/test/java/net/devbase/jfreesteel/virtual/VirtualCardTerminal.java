@@ -0,0 +1,251 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardNotPresentException;
+import javax.smartcardio.CardTerminal;
+
+/**
+ * Virtual card terminal, emulating the Serbian eID cards from card images.
+ *
+ * A card is inserted with insert() and removed with remove(), directly or on a schedule.
+ * Every APDU exchange can be delayed to model the reader latency, and faults can be
+ * injected to test the error handling. Cards connected before the removal fail with
+ * CardException, just like real cards do.
+ *
+ * Terminals are created by VirtualTerminals and are thread safe.
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class VirtualCardTerminal extends CardTerminal {
+
+    private final String name;
+    private final VirtualTerminals terminals;
+
+    /** Card image, null when there is no card in the terminal, guarded by terminals lock */
+    private VirtualCardImage image;
+
+    /** Incremented on every insertion and removal, connected cards check it on transmit */
+    private volatile long generation = 0;
+
+    /** Held by the thread having the exclusive access and during every APDU exchange */
+    final ReentrantLock exclusive = new ReentrantLock();
+
+    private volatile long apduLatencyNanos = 0;
+    private volatile long byteLatencyNanos = 0;
+    private volatile FaultInjector faults = FaultInjector.NONE;
+
+    private final AtomicLong transmitCount = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+
+    VirtualCardTerminal(String name, VirtualTerminals terminals) {
+        this.name = name;
+        this.terminals = terminals;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Card connect(String protocol) throws CardException {
+        if (!"*".equals(protocol) && !"T=1".equals(protocol)) {
+            throw new CardException(String.format("Unsupported protocol %s", protocol));
+        }
+        synchronized (terminals.lock) {
+            if (image == null) {
+                throw new CardNotPresentException(
+                        String.format("No card present in terminal %s", name));
+            }
+            return new VirtualCard(this, image, generation);
+        }
+    }
+
+    @Override
+    public boolean isCardPresent() {
+        synchronized (terminals.lock) {
+            return image != null;
+        }
+    }
+
+    @Override
+    public boolean waitForCardPresent(long timeout) throws CardException {
+        return waitForCard(true, timeout);
+    }
+
+    @Override
+    public boolean waitForCardAbsent(long timeout) throws CardException {
+        return waitForCard(false, timeout);
+    }
+
+    private boolean waitForCard(boolean present, long timeout) throws CardException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Negative timeout");
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (terminals.lock) {
+            while ((image != null) != present) {
+                long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+                if (timeout != 0 && remaining <= 0) {
+                    return false;
+                }
+                try {
+                    terminals.lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CardException("Interrupted while waiting for the card", e);
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Inserts the card, replacing the card already in the terminal. */
+    public void insert(VirtualCardImage card) {
+        if (card == null) {
+            throw new IllegalArgumentException("Card image is null");
+        }
+        synchronized (terminals.lock) {
+            image = card;
+            generation++;
+            terminals.lock.notifyAll();
+        }
+    }
+
+    /** Removes the card, does nothing if there is no card in the terminal. */
+    public void remove() {
+        synchronized (terminals.lock) {
+            if (image != null) {
+                image = null;
+                generation++;
+                terminals.lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Inserts the card after the delay, and removes it when the time is up.
+     *
+     * @param card Card image to insert
+     * @param delay Delay before the insertion
+     * @param duration How long the card stays in the terminal
+     * @param unit Time unit of the delay and the duration
+     * @return Future that cancels the insertion
+     */
+    public ScheduledFuture<?> schedule(final VirtualCardImage card, long delay,
+            final long duration, final TimeUnit unit) {
+        return VirtualTerminals.scheduler().schedule(
+                insertion(card, duration, unit), delay, unit);
+    }
+
+    /**
+     * Repeatedly inserts the card and removes it, until the returned future is cancelled.
+     *
+     * The card inserted last is still removed on time after the cancellation.
+     *
+     * @param card Card image to insert
+     * @param present How long the card stays in the terminal
+     * @param absent How long the terminal stays empty between the insertions
+     * @param unit Time unit of the periods
+     */
+    public ScheduledFuture<?> scheduleCycle(VirtualCardImage card, long present, long absent,
+            TimeUnit unit) {
+        return VirtualTerminals.scheduler().scheduleAtFixedRate(
+                insertion(card, present, unit), 0, present + absent, unit);
+    }
+
+    private Runnable insertion(final VirtualCardImage card, final long duration,
+            final TimeUnit unit) {
+        return new Runnable() {
+            public void run() {
+                insert(card);
+                VirtualTerminals.scheduler().schedule(new Runnable() {
+                    public void run() {
+                        remove();
+                    }
+                }, duration, unit);
+            }
+        };
+    }
+
+    /**
+     * Sets the time each APDU exchange takes, modelling the reader and the card.
+     *
+     * @param perApdu Fixed time per exchange
+     * @param perByte Additional time per byte sent and received
+     * @param unit Time unit
+     */
+    public void setLatency(long perApdu, long perByte, TimeUnit unit) {
+        apduLatencyNanos = unit.toNanos(perApdu);
+        byteLatencyNanos = unit.toNanos(perByte);
+    }
+
+    public void setFaultInjector(FaultInjector faults) {
+        this.faults = faults == null ? FaultInjector.NONE : faults;
+    }
+
+    /** Returns the number of APDUs sent to the terminal. */
+    public long getTransmitCount() {
+        return transmitCount.get();
+    }
+
+    /** Returns the number of bytes sent to and received from the terminal. */
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    /** Returns false if the card was removed since the given generation */
+    boolean isPresent(long cardGeneration) {
+        return generation == cardGeneration;
+    }
+
+    FaultInjector getFaultInjector() {
+        return faults;
+    }
+
+    /** Counts the exchange, returns the number of exchanges before it */
+    long countTransmit() {
+        return transmitCount.getAndIncrement();
+    }
+
+    /** Counts the bytes and waits as long as the exchange takes */
+    void transfer(int bytes) {
+        bytesTransferred.addAndGet(bytes);
+        long nanos = apduLatencyNanos + bytes * byteLatencyNanos;
+        if (nanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualCardTerminal[" + name + "]";
+    }
+}
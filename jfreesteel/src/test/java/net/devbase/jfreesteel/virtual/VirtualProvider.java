@@ -0,0 +1,102 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Provider;
+
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.TerminalFactorySpi;
+
+/**
+ * Security provider for the virtual terminals, with the TerminalFactory type "Virtual".
+ *
+ * Pass VirtualTerminals as the factory parameter:
+ * <pre>
+ * {@code
+ * TerminalFactory factory = TerminalFactory.getInstance(
+ *         VirtualProvider.TYPE, terminals, new VirtualProvider());
+ * }
+ * </pre>
+ *
+ * Applications calling TerminalFactory.getDefault() can be run without a card reader by
+ * registering the provider in a java.security file and setting the default type:
+ * <pre>
+ * security.provider.20=net.devbase.jfreesteel.virtual.VirtualProvider
+ *
+ * java -Djava.security.properties=virtual.security \
+ *      -Djavax.smartcardio.TerminalFactory.DefaultType=Virtual ...
+ * </pre>
+ *
+ * Without the parameter, the factory creates terminals as set by the system properties
+ * "jfreesteel.virtual.terminals", the number of terminals (default 1), and
+ * "jfreesteel.virtual.card", the directory with the card image to insert into every
+ * terminal. A sample Apollo card is inserted if the directory is not set.
+ */
+// Provider(String, String, String) replacing the deprecated constructor needs Java 9
+@SuppressWarnings({"restriction", "deprecation"})
+public class VirtualProvider extends Provider {
+
+    private static final long serialVersionUID = 1L;
+
+    /** TerminalFactory type */
+    public static final String TYPE = "Virtual";
+
+    public VirtualProvider() {
+        super("JFreesteelVirtual", 1.0, "JFreesteel virtual card terminals");
+        put("TerminalFactory." + TYPE, Factory.class.getName());
+    }
+
+    /** TerminalFactory implementation, instantiated by the provider framework */
+    public static class Factory extends TerminalFactorySpi {
+
+        private final VirtualTerminals terminals;
+
+        public Factory(Object parameter) throws IOException {
+            if (parameter instanceof VirtualTerminals) {
+                terminals = (VirtualTerminals) parameter;
+            } else if (parameter == null) {
+                terminals = fromSystemProperties();
+            } else {
+                throw new IllegalArgumentException(String.format(
+                        "Expected VirtualTerminals parameter, got %s", parameter.getClass()));
+            }
+        }
+
+        @Override
+        protected CardTerminals engineTerminals() {
+            return terminals;
+        }
+
+        private static VirtualTerminals fromSystemProperties() throws IOException {
+            int count = Integer.getInteger("jfreesteel.virtual.terminals", 1);
+            String directory = System.getProperty("jfreesteel.virtual.card");
+            VirtualCardImage image = directory != null
+                    ? VirtualCardImage.load(new File(directory))
+                    : VirtualCardImage.sample(VirtualCardImage.Type.APOLLO, 0);
+
+            VirtualTerminals terminals = new VirtualTerminals();
+            for (int i = 0; i < count; i++) {
+                terminals.addTerminal(String.format("Virtual Reader %d", i)).insert(image);
+            }
+            return terminals;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+
+/**
+ * Set of virtual card terminals.
+ *
+ * Terminals can be added and removed at any time, and any number of them can be used at
+ * once. Use it directly, or through TerminalFactory and VirtualProvider with the code
+ * written for the real terminals.
+ *
+ * Usage:
+ * <pre>
+ * {@code
+ * VirtualTerminals terminals = new VirtualTerminals();
+ * VirtualCardTerminal terminal = terminals.addTerminal("Virtual Reader 0");
+ * terminal.setLatency(8, 0, TimeUnit.MILLISECONDS);
+ * terminal.insert(VirtualCardImage.sample(VirtualCardImage.Type.APOLLO, 1));
+ * Reader reader = new Reader(terminal);
+ * }
+ * </pre>
+ */
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class VirtualTerminals extends CardTerminals {
+
+    /** Guards the state of all terminals, notified on every change */
+    final Object lock = new Object();
+
+    private final List<VirtualCardTerminal> terminals = new ArrayList<VirtualCardTerminal>();
+
+    /** Card presence seen by the last waitForChange() call, null before the first call */
+    private Map<VirtualCardTerminal, Boolean> seen = null;
+
+    /** Card presence seen by the waitForChange() call before the last */
+    private Map<VirtualCardTerminal, Boolean> previous =
+            new IdentityHashMap<VirtualCardTerminal, Boolean>();
+
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * Adds a new empty terminal.
+     *
+     * @throws IllegalArgumentException if there is already a terminal with the same name
+     */
+    public VirtualCardTerminal addTerminal(String name) {
+        synchronized (lock) {
+            for (VirtualCardTerminal terminal : terminals) {
+                if (terminal.getName().equals(name)) {
+                    throw new IllegalArgumentException(
+                            String.format("Terminal %s already exists", name));
+                }
+            }
+            VirtualCardTerminal terminal = new VirtualCardTerminal(name, this);
+            terminals.add(terminal);
+            lock.notifyAll();
+            return terminal;
+        }
+    }
+
+    /** Removes the terminal, as when the reader is unplugged. The card is removed first. */
+    public boolean removeTerminal(VirtualCardTerminal terminal) {
+        synchronized (lock) {
+            terminal.remove();
+            boolean removed = terminals.remove(terminal);
+            lock.notifyAll();
+            return removed;
+        }
+    }
+
+    @Override
+    public List<CardTerminal> list(State state) throws CardException {
+        if (state == null) {
+            throw new NullPointerException("State is null");
+        }
+        List<CardTerminal> out = new ArrayList<CardTerminal>();
+        synchronized (lock) {
+            for (VirtualCardTerminal terminal : terminals) {
+                boolean present = terminal.isCardPresent();
+                switch (state) {
+                    case ALL:
+                        out.add(terminal);
+                        break;
+                    case CARD_PRESENT:
+                        if (present) {
+                            out.add(terminal);
+                        }
+                        break;
+                    case CARD_ABSENT:
+                        if (!present) {
+                            out.add(terminal);
+                        }
+                        break;
+                    case CARD_INSERTION:
+                        if (seen != null && Boolean.TRUE.equals(seen.get(terminal))
+                                && !Boolean.TRUE.equals(previous.get(terminal))) {
+                            out.add(terminal);
+                        }
+                        break;
+                    case CARD_REMOVAL:
+                        if (seen != null && Boolean.FALSE.equals(seen.get(terminal))
+                                && Boolean.TRUE.equals(previous.get(terminal))) {
+                            out.add(terminal);
+                        }
+                        break;
+                }
+            }
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Waits for a card insertion or removal in any of the terminals, or until the timeout.
+     *
+     * The first call returns immediately if any card is present. CARD_INSERTION and
+     * CARD_REMOVAL lists report the changes since the previous call.
+     */
+    @Override
+    public boolean waitForChange(long timeout) throws CardException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Negative timeout");
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            Map<VirtualCardTerminal, Boolean> last = seen != null
+                    ? seen : new IdentityHashMap<VirtualCardTerminal, Boolean>();
+            while (true) {
+                Map<VirtualCardTerminal, Boolean> current = presence();
+                if (changed(last, current)) {
+                    previous = last;
+                    seen = current;
+                    return true;
+                }
+                long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+                if (timeout != 0 && remaining <= 0) {
+                    previous = last;
+                    seen = current;
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CardException("Interrupted while waiting for the change", e);
+                }
+            }
+        }
+    }
+
+    private Map<VirtualCardTerminal, Boolean> presence() {
+        Map<VirtualCardTerminal, Boolean> out = new IdentityHashMap<VirtualCardTerminal, Boolean>();
+        for (VirtualCardTerminal terminal : terminals) {
+            out.put(terminal, terminal.isCardPresent());
+        }
+        return out;
+    }
+
+    /** Card was inserted or removed, terminals added without a card are not a change */
+    private static boolean changed(
+            Map<VirtualCardTerminal, Boolean> last, Map<VirtualCardTerminal, Boolean> current) {
+        for (Map.Entry<VirtualCardTerminal, Boolean> entry : current.entrySet()) {
+            if (entry.getValue() != Boolean.TRUE.equals(last.get(entry.getKey()))) {
+                return true;
+            }
+        }
+        for (Map.Entry<VirtualCardTerminal, Boolean> entry : last.entrySet()) {
+            if (entry.getValue() && !current.containsKey(entry.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Shared scheduler for card insertions and removals */
+    static synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newScheduledThreadPool(1, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "virtual-terminals");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+}
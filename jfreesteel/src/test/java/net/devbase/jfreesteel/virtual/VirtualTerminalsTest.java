@@ -0,0 +1,226 @@
+/*
+ * jfreesteel: Serbian eID Viewer Library (GNU LGPLv3)
+ * Copyright (C) 2026 jfreesteel contributors
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License version
+ * 3.0 as published by the Free Software Foundation.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, see
+ * http://www.gnu.org/licenses/.
+ */
+
+package net.devbase.jfreesteel.virtual;
+
+import java.awt.Image;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals.State;
+import javax.smartcardio.TerminalFactory;
+
+import junit.framework.TestCase;
+
+import net.devbase.jfreesteel.EidCard;
+import net.devbase.jfreesteel.EidCardApollo;
+import net.devbase.jfreesteel.EidCardGemalto;
+import net.devbase.jfreesteel.EidSnapshot;
+import net.devbase.jfreesteel.ReadPlan;
+import net.devbase.jfreesteel.Reader;
+import net.devbase.jfreesteel.Reader.ReaderListener;
+import net.devbase.jfreesteel.virtual.VirtualCardImage.Type;
+
+@SuppressWarnings("restriction") // Various javax.smartcardio.*
+public class VirtualTerminalsTest extends TestCase {
+
+    private VirtualTerminals terminals;
+    private VirtualCardTerminal terminal;
+
+    @Override
+    public void setUp() {
+        terminals = new VirtualTerminals();
+        terminal = terminals.addTerminal("Virtual Reader 0");
+    }
+
+    public void testReadApollo() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        assertTrue(card instanceof EidCardApollo);
+
+        EidSnapshot snapshot = card.readAll();
+        assertEquals("ПЕТРОВИЋ", snapshot.getInfo().getSurname());
+        assertEquals("01.02.2025", snapshot.getInfo().getExpiryDate());
+        Image photo = snapshot.getPhoto();
+        assertEquals(300, photo.getWidth(null));
+        assertTrue(card.isExtendedLengthSupported());
+    }
+
+    public void testReadGemalto() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.GEMALTO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        assertTrue(card instanceof EidCardGemalto);
+
+        EidSnapshot snapshot = card.readAll();
+        assertEquals(
+                VirtualCardImage.sample(Type.APOLLO, 1).getFile(VirtualCardImage.PHOTO_FILE).length,
+                snapshot.getPhotoBytes().length + 10);
+        assertEquals("ВРАЧАР", snapshot.getInfo().getCommunity());
+    }
+
+    public void testSnapshotRoundTrip() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 2));
+        EidSnapshot snapshot = EidCard.fromCard(terminal.connect("*")).readAll();
+
+        terminal.insert(VirtualCardImage.create(Type.GEMALTO, snapshot));
+        EidSnapshot copy = EidCard.fromCard(terminal.connect("*")).readAll();
+        assertEquals(snapshot.getInfo().toString(), copy.getInfo().toString());
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        File directory = Files.createTempDirectory("virtualcard").toFile();
+        try {
+            VirtualCardImage.sample(Type.GEMALTO, 3).save(directory);
+            terminal.insert(VirtualCardImage.load(directory));
+            EidCard card = EidCard.fromCard(terminal.connect("*"));
+            assertEquals("МАРКО", card.readEidInfo().getGivenName());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    public void testSaveAndLoad_otherCard() throws Exception {
+        File directory = Files.createTempDirectory("virtualcard").toFile();
+        try {
+            byte[] atr = {0x3B, (byte) 0x82, (byte) 0x80, 0x01, 0x45, 0x49, 0x48};
+            byte[] aid = {(byte) 0xF3, (byte) 0x81, 0x00};
+            VirtualCardImage.sample(atr, ReadPlan.Layout.GEMALTO, aid, 3).save(directory);
+
+            VirtualCardImage image = VirtualCardImage.load(directory);
+            assertNull(image.getType());
+            assertEquals(ReadPlan.Layout.GEMALTO, image.getLayout());
+            assertTrue(Arrays.equals(atr, image.getAtr()));
+            assertTrue(Arrays.equals(aid, image.getAid()));
+            assertTrue(Arrays.equals(
+                    VirtualCardImage.sample(Type.GEMALTO, 3).getFile(VirtualCardImage.PHOTO_FILE),
+                    image.getFile(VirtualCardImage.PHOTO_FILE)));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    public void testRemoved() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        terminal.remove();
+
+        try {
+            card.readEidInfo();
+            fail("exception expected");
+        } catch (CardException expected) {
+        }
+    }
+
+    public void testFaultInjection() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        terminal.setFaultInjector(FaultInjector.failEvery(3));
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+        card.setMaxRetries(0);
+
+        try {
+            card.readEidInfo();
+            fail("exception expected");
+        } catch (CardException expected) {
+            assertEquals(3, terminal.getTransmitCount());
+        }
+    }
+
+    public void testShortApdusOnly() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        terminal.setFaultInjector(FaultInjector.shortApdusOnly());
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+
+        byte[] photo = card.readEidPhotoBytes();
+        assertEquals(
+                VirtualCardImage.sample(Type.APOLLO, 1).getFile(VirtualCardImage.PHOTO_FILE).length,
+                photo.length + 10);
+    }
+
+    public void testLatency() throws Exception {
+        terminal.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        terminal.setLatency(5, 0, TimeUnit.MILLISECONDS);
+        EidCard card = EidCard.fromCard(terminal.connect("*"));
+
+        long start = System.nanoTime();
+        card.readEidInfo();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 5 * terminal.getTransmitCount());
+        assertTrue(terminal.getBytesTransferred() > 0);
+    }
+
+    public void testWaitForChange() throws Exception {
+        VirtualCardTerminal other = terminals.addTerminal("Virtual Reader 1");
+        assertFalse(terminals.waitForChange(10));
+
+        other.insert(VirtualCardImage.sample(Type.APOLLO, 1));
+        assertTrue(terminals.waitForChange(10));
+        assertEquals(1, terminals.list(State.CARD_INSERTION).size());
+        assertSame(other, terminals.list(State.CARD_PRESENT).get(0));
+
+        other.remove();
+        assertTrue(terminals.waitForChange(10));
+        assertSame(other, terminals.list(State.CARD_REMOVAL).get(0));
+        assertTrue(terminals.list(State.CARD_INSERTION).isEmpty());
+        assertEquals(2, terminals.list(State.CARD_ABSENT).size());
+    }
+
+    public void testTerminalFactory() throws Exception {
+        TerminalFactory factory = TerminalFactory.getInstance(
+                VirtualProvider.TYPE, terminals, new VirtualProvider());
+        CardTerminal found = factory.terminals().getTerminal("Virtual Reader 0");
+        assertSame(terminal, found);
+    }
+
+    public void testReaderListener() throws Exception {
+        final CountDownLatch inserted = new CountDownLatch(1);
+        final CountDownLatch removed = new CountDownLatch(1);
+        final String[] surname = new String[1];
+
+        Reader reader = new Reader(terminal);
+        reader.addCardListener(new ReaderListener() {
+            public void inserted(EidCard card) {
+                try {
+                    surname[0] = card.readEidInfo().getSurname();
+                } catch (CardException e) {
+                    surname[0] = e.getMessage();
+                }
+                inserted.countDown();
+            }
+
+            public void removed() {
+                removed.countDown();
+            }
+        });
+
+        terminal.schedule(VirtualCardImage.sample(Type.APOLLO, 1), 10, 200, TimeUnit.MILLISECONDS);
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+        assertEquals("ПЕТРОВИЋ", surname[0]);
+        assertTrue(removed.await(5, TimeUnit.SECONDS));
+    }
+}